@@ -10,6 +10,7 @@ package com.pspdfkit.example.instant;
 import android.app.AlertDialog;
 import android.app.ProgressDialog;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.Toast;
@@ -24,6 +25,7 @@ import com.pspdfkit.example.instant.preferences.InstantConnectionPreferences;
 import com.pspdfkit.example.instant.ui.InstantCatalogPreferencesFragment;
 import com.pspdfkit.example.instant.ui.InstantConnectionPreferencesFragment;
 import com.pspdfkit.example.instant.ui.InstantKioskGridFragment;
+import com.pspdfkit.example.instant.ui.documentgrid.PreviewDiskCache;
 import com.pspdfkit.example.ui.CatalogActivityWithSettings;
 import com.pspdfkit.example.ui.CatalogPreferencesFragment;
 import com.pspdfkit.instant.client.InstantClient;
@@ -38,6 +40,8 @@ import io.reactivex.schedulers.Schedulers;
  */
 public class MainActivity extends CatalogActivityWithSettings implements InstantConnectionPreferencesFragment.Callback {
 
+    private static final String LOG_TAG = "MainActivity";
+
     private boolean isLoggedIn;
     private MenuItem logOutButton;
 
@@ -104,7 +108,7 @@ public class MainActivity extends CatalogActivityWithSettings implements Instant
         // Check if we can successfully connect to example server with provided connection preferences.
         final ProgressDialog progressDialog = ProgressDialog.show(this, null, getString(R.string.progress_connecting), true, false);
         try {
-            WebExampleClient webExampleClient = new WebExampleClient(serverUrl, userName);
+            WebExampleClient webExampleClient = WebExampleClient.getInstance(this, serverUrl, userName);
             webExampleClient.getDocumentsAsync()
                 .firstElement()
                 .map(documentDescriptor -> {
@@ -143,15 +147,29 @@ public class MainActivity extends CatalogActivityWithSettings implements Instant
 
     private void onLogOut() {
         final String instantServerUrl = InstantConnectionPreferences.getInstantServerUrl(this);
-        Completable.fromAction(() -> {
-            // Remove web example storage.
-            WebExampleDocumentsDatabase webExampleDatabase = new WebExampleDocumentsDatabase(MainActivity.this);
-            webExampleDatabase.removeAllDocuments();
-
-            // Remove instant client storage. This invalidates all loaded documents.
-            InstantClient instantClient = InstantClient.create(MainActivity.this, instantServerUrl);
-            instantClient.removeLocalStorage();
-        }).subscribeOn(Schedulers.io()).subscribe();
+        // Remove web example storage. Removal is queued and supersedes any document writes still pending.
+        new WebExampleDocumentsDatabase(this).removeAllDocuments()
+            // Runs on the writer, so a refresh that committed right before the removal can't leave its sync token behind.
+            .doOnComplete(() -> InstantConnectionPreferences.clearDocumentListComplete(getApplicationContext()))
+            .onErrorComplete(throwable -> {
+                // Documents are replaced anyway once the next user logs in, so the remaining storage is still cleaned up.
+                Log.e(LOG_TAG, "Error while removing web example documents.", throwable);
+                return true;
+            })
+            // Leave the writer thread before the slow cleanup.
+            .observeOn(Schedulers.io())
+            .andThen(Completable.fromAction(() -> {
+                // Remove cached web example server responses and document previews.
+                WebExampleClient.clearCache(MainActivity.this);
+                PreviewDiskCache.getInstance(MainActivity.this).clear();
+
+                // Remove instant client storage. This invalidates all loaded documents.
+                InstantClient instantClient = InstantClient.create(MainActivity.this, instantServerUrl);
+                instantClient.removeLocalStorage();
+            }))
+            .subscribeOn(Schedulers.io())
+            .subscribe(() -> {
+            }, throwable -> Log.e(LOG_TAG, "Error while removing local storage.", throwable));
 
         // Clear connection preferences
         InstantConnectionPreferences.clearConnectionPreferences(this);
@@ -0,0 +1,19 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+/**
+ * Signals that changes of the document list can't be retrieved incrementally, either because the web example server
+ * does not support it or because the sync token expired. The whole document list needs to be retrieved instead.
+ */
+public class DocumentChangesUnavailableException extends Exception {
+
+    public DocumentChangesUnavailableException() {
+        super("Document list changes are not available.");
+    }
+}
@@ -0,0 +1,18 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+/**
+ * Signals that the document list on the web example server did not change since it was last retrieved.
+ */
+public class DocumentListNotModifiedException extends Exception {
+
+    public DocumentListNotModifiedException() {
+        super("Document list was not modified.");
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import android.util.Base64;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the most recent authentication token of recently used documents together with its expiration time, so that
+ * tokens can be reused while they are valid and refreshed ahead of their expiration.
+ */
+class JwtCache {
+
+    private static final String LOG_TAG = "JwtCache";
+
+    /** Expiration time used for tokens without "exp" claim. */
+    static final long NO_EXPIRATION = Long.MAX_VALUE;
+
+    /** Maximal number of documents whose tokens are kept. Tokens of the least recently used documents are dropped first. */
+    private static final int MAX_TOKENS = 1024;
+
+    /** Most recent token of every document together with its decoded expiration time, keyed by document id. */
+    @NonNull private final LruCache<String, Token> tokens = new LruCache<>(MAX_TOKENS);
+
+    private volatile long refreshLeadTimeMs = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Sets how long before their expiration tokens are considered due for refresh.
+     */
+    void setRefreshLeadTime(long leadTime, @NonNull TimeUnit timeUnit) {
+        if (leadTime < 0) {
+            throw new IllegalArgumentException("Lead time may not be negative.");
+        }
+        refreshLeadTimeMs = timeUnit.toMillis(leadTime);
+    }
+
+    /**
+     * Remembers token as the most recent token of the document.
+     * @return Expiration time of the token in milliseconds since epoch, or {@link #NO_EXPIRATION}.
+     */
+    synchronized long putToken(@NonNull String documentId, @NonNull String jwt) {
+        final Token latestToken = tokens.get(documentId);
+        if (latestToken != null && latestToken.jwt.equals(jwt)) {
+            return latestToken.expirationTime;
+        }
+        final long expirationTime = decodeExpirationTime(jwt);
+        // Never replace a token with one that expires sooner.
+        if (latestToken == null || expirationTime >= latestToken.expirationTime) {
+            tokens.put(documentId, new Token(jwt, expirationTime));
+        }
+        return expirationTime;
+    }
+
+    /**
+     * Forgets the most recent token of the document, for example after it has been rejected by the server.
+     */
+    synchronized void removeToken(@NonNull String documentId) {
+        tokens.remove(documentId);
+    }
+
+    /**
+     * Returns the most recent token of the document if it is not due for refresh yet.
+     */
+    @Nullable
+    synchronized String getValidToken(@NonNull String documentId) {
+        final Token latestToken = tokens.get(documentId);
+        if (latestToken == null || getRefreshDelay(latestToken.expirationTime) <= 0) {
+            return null;
+        }
+        return latestToken.jwt;
+    }
+
+    /**
+     * Returns time in milliseconds after which a token expiring at the given time is due for refresh, or
+     * {@link #NO_EXPIRATION} if it does not expire.
+     */
+    long getRefreshDelay(long expirationTime) {
+        if (expirationTime == NO_EXPIRATION) {
+            return NO_EXPIRATION;
+        }
+        return expirationTime - refreshLeadTimeMs - System.currentTimeMillis();
+    }
+
+    /**
+     * Reads "exp" claim from the payload of the token.
+     */
+    private static long decodeExpirationTime(@NonNull String jwt) {
+        final String[] parts = jwt.split("\\.");
+        if (parts.length < 2) {
+            return NO_EXPIRATION;
+        }
+        try {
+            final byte[] payload = Base64.decode(parts[1], Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
+            try (JsonReader reader = new JsonReader(new StringReader(new String(payload, Charset.forName("UTF-8"))))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("exp".equals(reader.nextName()) && reader.peek() == JsonToken.NUMBER) {
+                        // Claim holds seconds since epoch.
+                        return TimeUnit.SECONDS.toMillis(reader.nextLong());
+                    }
+                    reader.skipValue();
+                }
+            }
+        } catch (Exception e) {
+            Log.w(LOG_TAG, "Could not decode authentication token expiration time.", e);
+        }
+        return NO_EXPIRATION;
+    }
+
+    private static class Token {
+        @NonNull final String jwt;
+        /** Expiration time in milliseconds since epoch, or {@link #NO_EXPIRATION}. */
+        final long expirationTime;
+
+        Token(@NonNull String jwt, long expirationTime) {
+            this.jwt = jwt;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
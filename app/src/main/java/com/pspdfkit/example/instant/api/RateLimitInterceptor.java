@@ -0,0 +1,84 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import androidx.annotation.NonNull;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OkHttp interceptor spacing out requests to the same host so that a configured request rate is not exceeded. A single
+ * interceptor is shared by all clients talking to a host, so that their requests count against the same limit.
+ */
+class RateLimitInterceptor implements Interceptor {
+
+    /** Minimal interval between two requests to a host in nanoseconds, keyed by host name. Hosts without limit are missing. */
+    @NonNull private final Map<String, Long> minRequestIntervals = new HashMap<>();
+    /** Time at which the next request to a host may be started, keyed by host name. */
+    @NonNull private final Map<String, Long> nextRequestTimes = new HashMap<>();
+
+    /**
+     * Sets maximal number of requests per second that may be started against the host.
+     * @param maxRequestsPerSecond Maximal request rate, or {@code 0} to disable rate limiting for the host.
+     */
+    synchronized void setMaxRequestsPerSecond(@NonNull String host, double maxRequestsPerSecond) {
+        if (maxRequestsPerSecond < 0) {
+            throw new IllegalArgumentException("Request rate may not be negative.");
+        }
+        if (maxRequestsPerSecond > 0) {
+            minRequestIntervals.put(host, (long) (TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond));
+        } else {
+            minRequestIntervals.remove(host);
+            nextRequestTimes.remove(host);
+        }
+    }
+
+    /**
+     * Removes rate limits of all hosts.
+     */
+    synchronized void clear() {
+        minRequestIntervals.clear();
+        nextRequestTimes.clear();
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        final long delay = reserveRequestSlot(chain.request().url().host());
+        if (delay > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for request slot.");
+            }
+        }
+        return chain.proceed(chain.request());
+    }
+
+    /**
+     * Reserves the next free request slot for the host.
+     * @return Time in nanoseconds the caller needs to wait before starting its request.
+     */
+    private synchronized long reserveRequestSlot(@NonNull String host) {
+        final Long minRequestInterval = minRequestIntervals.get(host);
+        if (minRequestInterval == null) return 0;
+
+        final long now = System.nanoTime();
+        final Long nextRequestTime = nextRequestTimes.get(host);
+        final long requestTime = nextRequestTime == null ? now : Math.max(now, nextRequestTime);
+        nextRequestTimes.put(host, requestTime + minRequestInterval);
+        return requestTime - now;
+    }
+}
@@ -7,21 +7,39 @@
 
 package com.pspdfkit.example.instant.api;
 
+import android.content.Context;
 import android.text.TextUtils;
 import android.util.Base64;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.gson.Gson;
+import io.reactivex.Emitter;
 import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Single;
+import io.reactivex.functions.BiConsumer;
 import io.reactivex.functions.Function;
 import io.reactivex.schedulers.Schedulers;
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
 import org.reactivestreams.Publisher;
+import retrofit2.HttpException;
+import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
 import retrofit2.converter.gson.GsonConverterFactory;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -29,75 +47,566 @@ import java.util.concurrent.TimeUnit;
  */
 public class WebExampleClient {
 
-    @NonNull private final Retrofit retrofit;
+    /**
+     * Order in which {@link #getDocumentsAsync()} emits documents.
+     */
+    public enum FanOutMode {
+        /** Documents are emitted in the order returned by the server, token requests still run concurrently. */
+        ORDERED,
+        /** Documents are emitted as soon as their authentication token arrives. */
+        UNORDERED
+    }
+
+    /** Default number of token requests that are in flight at the same time. */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+    /** Default number of documents whose tokens are requested at once. */
+    public static final int DEFAULT_JWT_BATCH_SIZE = 100;
+    /** Default number of documents requested per page of the document list. */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /** Minimal delay between two refreshes of the same authentication token. */
+    private static final long MIN_JWT_REFRESH_DELAY_MS = TimeUnit.SECONDS.toMillis(10);
+
+    private static final String HTTP_CACHE_DIRECTORY = "web_example_http_cache";
+    private static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
+
+    /** Clients shared by the whole process, keyed by server URL and user name. */
+    @NonNull private static final Map<String, WebExampleClient> instances = new HashMap<>();
+    /** HTTP client whose connection pool, dispatcher and response cache are shared by all web example clients. */
+    @Nullable private static OkHttpClient sharedHttpClient;
+    /** Rate limits of the shared HTTP client. Clients of the same host share the limit of that host. */
+    @NonNull private static final RateLimitInterceptor rateLimitInterceptor = new RateLimitInterceptor();
+
+    /** Gson instance using hand-written type adapters, shared by all clients. */
+    @NonNull private static final Gson gson = WebExampleTypeAdapters.createGson();
+
+    @NonNull private final WebExampleRetrofitService service;
     @NonNull private final String authorization;
+    /** Host of the example server, used as key of the rate limit. */
+    @NonNull private final String host;
+
+    @NonNull private volatile FanOutMode fanOutMode = FanOutMode.ORDERED;
+    private volatile int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+    private volatile int jwtBatchSize = DEFAULT_JWT_BATCH_SIZE;
+    private volatile int pageSize = DEFAULT_PAGE_SIZE;
+    /** Whether the server supports batched token requests, {@code null} until the first batched request finished. */
+    @Nullable private volatile Boolean batchedJwtRequestsSupported;
+    @NonNull private final JwtCache jwtCache = new JwtCache();
+    /** Authentication token requests currently in flight, keyed by document id. Concurrent callers share these. */
+    @NonNull private final Map<String, Single<String>> inFlightJwtRequests = new HashMap<>();
+    /** Sync token of the most recently retrieved complete document list. */
+    @Nullable private volatile String syncToken;
+
+    /**
+     * Returns client for the web example server and user. Clients are shared by the whole process so that they can reuse
+     * warm connections to the server.
+     */
+    @NonNull
+    public static synchronized WebExampleClient getInstance(@NonNull Context context, @NonNull String serverUrl, @NonNull String userName) {
+        final String key = serverUrl + "\n" + userName;
+        WebExampleClient instance = instances.get(key);
+        if (instance == null) {
+            instance = new WebExampleClient(getSharedHttpClient(context), serverUrl, userName);
+            instances.put(key, instance);
+        }
+        return instance;
+    }
+
+    @NonNull
+    private static synchronized OkHttpClient getSharedHttpClient(@NonNull Context context) {
+        if (sharedHttpClient == null) {
+            // Bounded on-disk cache used for conditional requests of the document list.
+            final Cache cache = new Cache(new File(context.getApplicationContext().getCacheDir(), HTTP_CACHE_DIRECTORY), HTTP_CACHE_SIZE);
+            sharedHttpClient = new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .cache(cache)
+                .addInterceptor(rateLimitInterceptor)
+                .build();
+        }
+        return sharedHttpClient;
+    }
+
+    /**
+     * Removes all responses from the HTTP cache shared by web example clients.
+     */
+    public static void clearCache(@NonNull Context context) throws IOException {
+        final Cache cache = getSharedHttpClient(context).cache();
+        if (cache != null) {
+            cache.evictAll();
+        }
+    }
+
+    /**
+     * Drops all clients, rate limits and the shared HTTP client together with its response cache, so that tests against
+     * different servers don't see each other's clients or cached responses.
+     */
+    @VisibleForTesting
+    static synchronized void resetSharedState() throws IOException {
+        instances.clear();
+        rateLimitInterceptor.clear();
+        if (sharedHttpClient != null) {
+            final Cache cache = sharedHttpClient.cache();
+            if (cache != null) {
+                cache.delete();
+            }
+            sharedHttpClient = null;
+        }
+    }
 
-    public WebExampleClient(@NonNull String serverUrl, @NonNull String userName) {
+    private WebExampleClient(@NonNull OkHttpClient sharedHttpClient, @NonNull String serverUrl, @NonNull String userName) {
         // In this example, we authorize using basic authorization with base64 encoded user name.
         this.authorization = "Basic " + new String(Base64.encode(String.format("%s:", userName).getBytes(), Base64.NO_WRAP));
 
-        OkHttpClient okHttpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .build();
+        this.host = HttpUrl.get(serverUrl).host();
 
-        retrofit = new Retrofit.Builder()
+        // Shared client, so that connection pool, dispatcher and rate limits are shared with all other clients.
+        Retrofit retrofit = new Retrofit.Builder()
             .baseUrl(serverUrl)
-            .client(okHttpClient)
+            .client(sharedHttpClient)
             .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
-            .addConverterFactory(GsonConverterFactory.create())
+            .addConverterFactory(GsonConverterFactory.create(gson))
             .build();
+        service = retrofit.create(WebExampleRetrofitService.class);
+    }
+
+    /**
+     * Sets how {@link #getDocumentsAsync()} fans out authentication token requests for listed documents.
+     * @param fanOutMode            Whether documents are emitted in listing order or as soon as their token arrives.
+     * @param maxConcurrentRequests Maximal number of token requests in flight at the same time.
+     */
+    public void setFanOut(@NonNull FanOutMode fanOutMode, int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("At least one concurrent request is required.");
+        }
+        this.fanOutMode = fanOutMode;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * Limits the rate of requests sent to the example server host. The limit applies to all clients of the host.
+     * @param maxRequestsPerSecond Maximal number of requests started per second, or {@code 0} to disable rate limiting.
+     */
+    public void setMaxRequestsPerSecond(double maxRequestsPerSecond) {
+        rateLimitInterceptor.setMaxRequestsPerSecond(host, maxRequestsPerSecond);
+    }
+
+    /**
+     * Sets how many document tokens are requested at once from servers supporting "POST /api/documents/tokens".
+     * @param jwtBatchSize Number of documents per batched token request, or {@code 0} to always request tokens one by one.
+     */
+    public void setJwtBatchSize(int jwtBatchSize) {
+        if (jwtBatchSize < 0) {
+            throw new IllegalArgumentException("Batch size may not be negative.");
+        }
+        this.jwtBatchSize = jwtBatchSize;
+    }
+
+    /**
+     * Sets how many documents are requested per page of the document list.
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        this.pageSize = pageSize;
     }
 
     @NonNull
     public Flowable<WebExampleDocumentDescriptor> getDocumentsAsync() {
-        final WebExampleRetrofitService service = retrofit.create(WebExampleRetrofitService.class);
+        return getDocumentsAsync(false);
+    }
 
+    /**
+     * Retrieves documents and their authentication tokens from example web server. Documents are emitted as soon as
+     * they are resolved, pages of the document list are requested one after another.
+     * @param onlyIfModified When {@code true} and no page of the document list changed since it was last retrieved, the
+     *                       returned flowable fails with {@link DocumentListNotModifiedException} without requesting any tokens.
+     * @return Flowable emitting document descriptors. Scheduled on {@link Schedulers#io()}.
+     */
+    @NonNull
+    public Flowable<WebExampleDocumentDescriptor> getDocumentsAsync(final boolean onlyIfModified) {
+        if (!onlyIfModified) return getDocuments(null, getDocumentListPage(null));
+        return requireDocumentListModified()
+            .map(firstPage -> getDocuments(null, Single.just(firstPage)))
+            .defaultIfEmpty(getDocuments(null, getDocumentListPage(null)))
+            .flatMapPublisher(documents -> documents);
+    }
+
+    /**
+     * Returns sync token reported with the most recently retrieved complete document list, or {@code null} if the server
+     * does not support retrieving changes of the document list. Pass it to {@link #getDocumentChangesAsync(String)}.
+     */
+    @Nullable
+    public String getSyncToken() {
+        return syncToken;
+    }
+
+    /**
+     * Retrieves changes of the document list since the document list described by the sync token, including authentication
+     * tokens for added and changed documents.
+     * @return Single returning changes of the document list. Fails with {@link DocumentChangesUnavailableException} when
+     * changes can't be retrieved incrementally, the whole document list needs to be retrieved then. Scheduled on {@link Schedulers#io()}.
+     */
+    @NonNull
+    public Single<WebExampleDocumentChanges> getDocumentChangesAsync(@NonNull String syncToken) {
+        return service.getDocumentChanges(authorization, syncToken)
+            .subscribeOn(Schedulers.io())
+            .flatMap((Function<Response<WebExampleDocumentChangeList>, Single<WebExampleDocumentChanges>>) response -> {
+                final WebExampleDocumentChangeList changeList = response.body();
+                if (response.isSuccessful() && changeList != null) {
+                    return resolveAllDocuments(changeList.added)
+                        .flatMap(addedDocuments -> resolveAllDocuments(changeList.changed)
+                            .map(changedDocuments -> new WebExampleDocumentChanges(
+                                addedDocuments,
+                                changedDocuments,
+                                changeList.removed,
+                                changeList.syncToken)));
+                } else if (isUnsupportedEndpointResponse(response.code()) || response.code() == HttpURLConnection.HTTP_GONE) {
+                    return Single.error(new DocumentChangesUnavailableException());
+                } else {
+                    return Single.error(new HttpException(response));
+                }
+            });
+    }
+
+    /**
+     * Resolves tokens of all given documents. Documents without a token would silently go missing from the local
+     * document list once the changes are applied, so the whole change set is rejected instead.
+     * @return Single returning resolved documents. Fails with {@link DocumentChangesUnavailableException} if a token
+     * could not be resolved.
+     */
+    @NonNull
+    private Single<List<WebExampleDocumentDescriptor>> resolveAllDocuments(@NonNull List<WebExampleDocument> documents) {
+        return resolveDocuments(Flowable.fromIterable(documents))
+            .toList()
+            .flatMap(documentDescriptors -> documentDescriptors.size() == documents.size()
+                ? Single.just(documentDescriptors)
+                : Single.<List<WebExampleDocumentDescriptor>>error(new DocumentChangesUnavailableException()));
+    }
+
+    /**
+     * Resolves documents of the given page of the document list, followed by those of all later pages.
+     * @param cursor Cursor the page was requested with, {@code null} for the first page.
+     */
+    @NonNull
+    private Flowable<WebExampleDocumentDescriptor> getDocuments(@Nullable String cursor,
+                                                                @NonNull Single<WebExampleDocumentListReader> page) {
+        return page
+            .flatMapPublisher(reader -> {
+                final Flowable<WebExampleDocumentDescriptor> documents = resolveDocuments(readDocuments(reader))
+                    // Next page cursor is known once the whole page has been read.
+                    .concatWith(Flowable.defer(() -> {
+                        final String nextCursor = reader.getNextCursor();
+                        return nextCursor == null
+                            ? Flowable.<WebExampleDocumentDescriptor>empty()
+                            : getDocuments(nextCursor, getDocumentListPage(nextCursor));
+                    }));
+                // Sync token of the first page describes the whole document list.
+                return cursor == null ? documents.doOnComplete(() -> syncToken = reader.getSyncToken()) : documents;
+            });
+    }
+
+    /**
+     * Requests a page of the document list.
+     * @return Single returning reader for documents of the requested page.
+     */
+    @NonNull
+    private Single<WebExampleDocumentListReader> getDocumentListPage(@Nullable String cursor) {
         // We will execute 2 REST queries here:
-        //       GET /api/documents - to download list of available documents.
-        //       GET /api/document/:id - to download authentication token for each document.
-        return service.getDocuments(authorization)
+        //       GET /api/documents - to download a page of available documents.
+        //       POST /api/documents/tokens - to download authentication tokens for a batch of documents. If the server does not
+        //                                    support batched requests, GET /api/document/:id is used for each document instead.
+        return service.getDocuments(authorization, cursor, pageSize)
             .subscribeOn(Schedulers.io())
-            .toFlowable()
-            .flatMapIterable((Function<WebExampleDocumentList, Iterable<WebExampleDocument>>) webExampleDocumentList -> webExampleDocumentList.documents)
-            .flatMap((Function<WebExampleDocument, Publisher<WebExampleDocumentDescriptor>>) webExampleDocument -> service.getJwt(authorization, webExampleDocument.id)
-                .toFlowable()
-                .filter(webExampleDocumentAuthenticationResult -> webExampleDocumentAuthenticationResult.success)
-                .map(webExampleDocumentAuthenticationResult -> {
-                    List<String> layers = webExampleDocument.layers;
-                    List<String> layersAuthTokens = webExampleDocument.tokens;
-                    List<WebExampleDocumentLayerDescriptor> documentLayers = new ArrayList<>(layers.size());
-
-                    // Default layer.
-                    documentLayers.add(new WebExampleDocumentLayerDescriptor(webExampleDocument.id, "", webExampleDocumentAuthenticationResult.token));
-
-                    // Other layers.
-                    if (layers.size() == layersAuthTokens.size()) {
-                        for (int i = 0; i < layers.size(); i++) {
-                            if (!TextUtils.isEmpty(layers.get(i))) {
-                                documentLayers.add(new WebExampleDocumentLayerDescriptor(
-                                    webExampleDocument.id,
-                                    layers.get(i),
-                                    layersAuthTokens.get(i)
-                                ));
-                            }
-                        }
+            .map(response -> {
+                final ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    closeQuietly(body);
+                    throw new HttpException(response);
+                }
+                return new WebExampleDocumentListReader(gson, body.charStream());
+            });
+    }
+
+    /**
+     * Revalidates pages of the document list until it finds a modified one, without resolving any documents. Validators
+     * of a page only cover that page, so the list only counts as unchanged if all of its pages are. Unchanged pages are
+     * answered from the HTTP cache, and are answered from it again when the list is retrieved afterwards.
+     * @return Maybe returning reader of the first page if that page changed, so that documents are read from it instead
+     * of downloading it again. Completes empty if a later page changed, and fails with {@link DocumentListNotModifiedException}
+     * if no page changed.
+     */
+    @NonNull
+    private Maybe<WebExampleDocumentListReader> requireDocumentListModified() {
+        return requireDocumentListModified(null);
+    }
+
+    /**
+     * Checks pages of the document list starting at the given cursor. Checking stops at the first modified page.
+     */
+    @NonNull
+    private Maybe<WebExampleDocumentListReader> requireDocumentListModified(@Nullable String cursor) {
+        return service.getDocuments(authorization, cursor, pageSize)
+            .subscribeOn(Schedulers.io())
+            .flatMapMaybe(response -> {
+                final ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    closeQuietly(body);
+                    throw new HttpException(response);
+                }
+                final boolean modified = !isNotModified(response);
+                final WebExampleDocumentListReader reader = new WebExampleDocumentListReader(gson, body.charStream());
+                if (modified && cursor == null) {
+                    return Maybe.just(reader);
+                }
+
+                // Later pages are read completely even when modified, instead of holding them open while earlier pages
+                // are resolved. That stores them in the HTTP cache, so they are only revalidated when read again.
+                // Cursor of the next page is only known once the whole page has been read.
+                final String nextCursor;
+                try {
+                    while (reader.nextDocument() != null) {
+                        // Documents are read again when the list is retrieved.
                     }
+                    nextCursor = reader.getNextCursor();
+                } finally {
+                    reader.close();
+                }
+                if (modified) return Maybe.<WebExampleDocumentListReader>empty();
+                return nextCursor == null
+                    ? Maybe.<WebExampleDocumentListReader>error(new DocumentListNotModifiedException())
+                    : requireDocumentListModified(nextCursor);
+            });
+    }
 
-                    return new WebExampleDocumentDescriptor(webExampleDocument.id, webExampleDocument.title, documentLayers);
-                }));
+    @NonNull
+    private Flowable<WebExampleDocumentDescriptor> resolveDocuments(@NonNull Flowable<WebExampleDocument> documents) {
+        final int batchSize = jwtBatchSize;
+        if (batchSize > 0 && !Boolean.FALSE.equals(batchedJwtRequestsSupported)) {
+            return fanOut(documents.buffer(batchSize), this::getDocumentDescriptors);
+        } else {
+            return fanOut(documents, this::getDocumentDescriptor);
+        }
     }
 
     /**
-     * Retrieves authentication token for Instant document from example web server.
-     * @return Single returning authentication token or error if token cold not be retrieved. Scheduled on {@link Schedulers#io()}.
+     * Returns {@code true} if the response was served from the HTTP cache, either because it was still fresh or because
+     * the server confirmed it with "304 Not Modified".
+     */
+    private static boolean isNotModified(@NonNull Response<?> response) {
+        final okhttp3.Response rawResponse = response.raw();
+        final okhttp3.Response networkResponse = rawResponse.networkResponse();
+        return rawResponse.cacheResponse() != null &&
+            (networkResponse == null || networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED);
+    }
+
+    /**
+     * Decodes documents while the response body is downloaded. Documents are only read when requested downstream, so
+     * the memory used does not depend on the size of the document list.
      */
     @NonNull
-    public Single<String> getJwt(@NonNull final String documentId) {
-        final WebExampleRetrofitService service = retrofit.create(WebExampleRetrofitService.class);
-        return service.getJwt(authorization, documentId)
+    private Flowable<WebExampleDocument> readDocuments(@NonNull WebExampleDocumentListReader documentListReader) {
+        return Flowable.generate(
+            () -> documentListReader,
+            (BiConsumer<WebExampleDocumentListReader, Emitter<WebExampleDocument>>) (reader, emitter) -> {
+                final WebExampleDocument document = reader.nextDocument();
+                if (document != null) {
+                    emitter.onNext(document);
+                } else {
+                    emitter.onComplete();
+                }
+            },
+            WebExampleDocumentListReader::close)
+            // Downstream requests may arrive on any thread, the body is always read on I/O threads.
+            .subscribeOn(Schedulers.io());
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing left to do with the closeable.
+        }
+    }
+
+    @NonNull
+    private <T> Flowable<WebExampleDocumentDescriptor> fanOut(@NonNull Flowable<T> source,
+                                                              @NonNull Function<T, Publisher<WebExampleDocumentDescriptor>> mapper) {
+        // Token requests are bounded so large catalogs don't flood the HTTP dispatcher and the server.
+        if (fanOutMode == FanOutMode.ORDERED) {
+            return source.concatMapEager(mapper, maxConcurrentRequests, 1);
+        } else {
+            return source.flatMap(mapper, maxConcurrentRequests);
+        }
+    }
+
+    @NonNull
+    private Flowable<WebExampleDocumentDescriptor> getDocumentDescriptors(@NonNull List<WebExampleDocument> webExampleDocuments) {
+        // Another batch might have already found out that the server does not support batched requests.
+        if (Boolean.FALSE.equals(batchedJwtRequestsSupported)) {
+            return getDocumentDescriptorsOneByOne(webExampleDocuments);
+        }
+
+        final List<String> documentIds = new ArrayList<>(webExampleDocuments.size());
+        for (WebExampleDocument webExampleDocument : webExampleDocuments) {
+            documentIds.add(webExampleDocument.id);
+        }
+
+        return service.getJwts(authorization, new WebExampleDocumentTokensRequest(documentIds))
+            .subscribeOn(Schedulers.io())
+            .toFlowable()
+            .flatMap((Function<Response<WebExampleDocumentTokens>, Publisher<WebExampleDocumentDescriptor>>) response -> {
+                final WebExampleDocumentTokens documentTokens = response.body();
+                if (response.isSuccessful() && documentTokens != null) {
+                    batchedJwtRequestsSupported = true;
+                    // Documents missing from the response are requested on their own instead of being dropped.
+                    return Flowable.fromIterable(webExampleDocuments)
+                        .concatMap(webExampleDocument -> {
+                            final String token = documentTokens.tokens.get(webExampleDocument.id);
+                            return token != null
+                                ? Flowable.just(createDocumentDescriptor(webExampleDocument, token))
+                                : getDocumentDescriptor(webExampleDocument);
+                        });
+                } else if (isUnsupportedEndpointResponse(response.code())) {
+                    batchedJwtRequestsSupported = false;
+                    return getDocumentDescriptorsOneByOne(webExampleDocuments);
+                } else {
+                    return Flowable.error(new HttpException(response));
+                }
+            });
+    }
+
+    @NonNull
+    private Flowable<WebExampleDocumentDescriptor> getDocumentDescriptorsOneByOne(@NonNull List<WebExampleDocument> webExampleDocuments) {
+        // Batches are already fanned out, so the documents of a single batch are resolved sequentially.
+        return Flowable.fromIterable(webExampleDocuments)
+            .concatMap(this::getDocumentDescriptor);
+    }
+
+    private static boolean isUnsupportedEndpointResponse(int responseCode) {
+        return responseCode == HttpURLConnection.HTTP_NOT_FOUND ||
+            responseCode == HttpURLConnection.HTTP_BAD_METHOD ||
+            responseCode == HttpURLConnection.HTTP_NOT_IMPLEMENTED;
+    }
+
+    @NonNull
+    private Flowable<WebExampleDocumentDescriptor> getDocumentDescriptor(@NonNull WebExampleDocument webExampleDocument) {
+        return service.getJwt(authorization, webExampleDocument.id)
+            // Each token request is subscribed on its own worker, otherwise requests would run one after another.
             .subscribeOn(Schedulers.io())
             .toFlowable()
             .filter(webExampleDocumentAuthenticationResult -> webExampleDocumentAuthenticationResult.success)
-            .map(webExampleDocumentAuthenticationResult -> webExampleDocumentAuthenticationResult.token).singleOrError();
+            .map(webExampleDocumentAuthenticationResult -> createDocumentDescriptor(webExampleDocument, webExampleDocumentAuthenticationResult.token));
+    }
+
+    @NonNull
+    private WebExampleDocumentDescriptor createDocumentDescriptor(@NonNull WebExampleDocument webExampleDocument, @NonNull String token) {
+        jwtCache.putToken(webExampleDocument.id, token);
+
+        List<String> layers = webExampleDocument.layers;
+        List<String> layersAuthTokens = webExampleDocument.tokens;
+        List<WebExampleDocumentLayerDescriptor> documentLayers = new ArrayList<>(layers.size());
+
+        // Default layer.
+        documentLayers.add(new WebExampleDocumentLayerDescriptor(webExampleDocument.id, "", token));
+
+        // Other layers.
+        if (layers.size() == layersAuthTokens.size()) {
+            for (int i = 0; i < layers.size(); i++) {
+                if (!TextUtils.isEmpty(layers.get(i))) {
+                    documentLayers.add(new WebExampleDocumentLayerDescriptor(
+                        webExampleDocument.id,
+                        layers.get(i),
+                        layersAuthTokens.get(i)
+                    ));
+                }
+            }
+        }
+
+        return new WebExampleDocumentDescriptor(webExampleDocument.id, webExampleDocument.title, documentLayers);
+    }
+
+    /**
+     * Retrieves authentication token for Instant document from example web server. Cached tokens are returned without
+     * contacting the server until they are due for refresh. Concurrent calls for the same document share a single request.
+     * @return Single returning authentication token or error if token cold not be retrieved. Scheduled on {@link Schedulers#io()}.
+     */
+    @NonNull
+    public Single<String> getJwt(@NonNull final String documentId) {
+        return Single.defer(() -> {
+            final String cachedJwt = jwtCache.getValidToken(documentId);
+            if (cachedJwt != null) {
+                return Single.just(cachedJwt);
+            }
+            return getInFlightJwtRequest(documentId);
+        });
+    }
+
+    /**
+     * Returns request for the authentication token of the document that is already in flight, or starts a new one.
+     */
+    @NonNull
+    private Single<String> getInFlightJwtRequest(@NonNull final String documentId) {
+        synchronized (inFlightJwtRequests) {
+            Single<String> request = inFlightJwtRequests.get(documentId);
+            if (request == null) {
+                request = service.getJwt(authorization, documentId)
+                    .subscribeOn(Schedulers.io())
+                    .toFlowable()
+                    .filter(webExampleDocumentAuthenticationResult -> webExampleDocumentAuthenticationResult.success)
+                    .map(webExampleDocumentAuthenticationResult -> webExampleDocumentAuthenticationResult.token)
+                    .singleOrError()
+                    .doOnSuccess(jwt -> jwtCache.putToken(documentId, jwt))
+                    // No new request for the document can be started while this one is registered, so it is safe to remove by key.
+                    .doFinally(() -> {
+                        synchronized (inFlightJwtRequests) {
+                            inFlightJwtRequests.remove(documentId);
+                        }
+                    })
+                    // Request keeps running when its callers unsubscribe, so that its result still lands in the cache.
+                    .cache();
+                inFlightJwtRequests.put(documentId, request);
+            }
+            return request;
+        }
+    }
+
+    /**
+     * Drops cached authentication token of the document so that the next {@link #getJwt(String)} call retrieves a new one.
+     */
+    public void invalidateJwt(@NonNull final String documentId) {
+        jwtCache.removeToken(documentId);
+    }
+
+    /**
+     * Sets how long before their expiration authentication tokens are refreshed.
+     */
+    public void setJwtRefreshLeadTime(long leadTime, @NonNull TimeUnit timeUnit) {
+        jwtCache.setRefreshLeadTime(leadTime, timeUnit);
+    }
+
+    /**
+     * Refreshes authentication token of the document in the background shortly before it expires, see
+     * {@link #setJwtRefreshLeadTime(long, TimeUnit)}. Refreshing continues with every new token until unsubscribed.
+     * @param jwt Authentication token currently used for the document.
+     * @return Flowable emitting fresh authentication tokens. Never emits for tokens without expiration time.
+     */
+    @NonNull
+    public Flowable<String> getRefreshedJwts(@NonNull final String documentId, @NonNull final String jwt) {
+        return Flowable.defer(() -> {
+            final long refreshDelay = jwtCache.getRefreshDelay(jwtCache.putToken(documentId, jwt));
+            if (refreshDelay == JwtCache.NO_EXPIRATION) {
+                return Flowable.<String>empty();
+            }
+            return Single.timer(Math.max(refreshDelay, MIN_JWT_REFRESH_DELAY_MS), TimeUnit.MILLISECONDS, Schedulers.io())
+                // On failure the current token is kept and refreshing is retried after the minimal delay.
+                .flatMap(ignored -> getJwt(documentId).onErrorReturnItem(jwt))
+                .toFlowable()
+                .concatMap(refreshedJwt -> {
+                    final Flowable<String> nextRefreshedJwts = getRefreshedJwts(documentId, refreshedJwt);
+                    return refreshedJwt.equals(jwt) ? nextRefreshedJwts : Flowable.just(refreshedJwt).concatWith(nextRefreshedJwts);
+                });
+        });
     }
 }
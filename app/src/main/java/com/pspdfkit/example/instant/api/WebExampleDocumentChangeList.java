@@ -0,0 +1,33 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Changes of the document list returned by "GET /api/documents/changes" from web example server.
+ */
+class WebExampleDocumentChangeList {
+    @NonNull public final List<WebExampleDocument> added;
+    @NonNull public final List<WebExampleDocument> changed;
+    @NonNull public final List<String> removed;
+    @Nullable public final String syncToken;
+
+    public WebExampleDocumentChangeList(@NonNull List<WebExampleDocument> added,
+                                        @NonNull List<WebExampleDocument> changed,
+                                        @NonNull List<String> removed,
+                                        @Nullable String syncToken) {
+        this.added = added;
+        this.changed = changed;
+        this.removed = removed;
+        this.syncToken = syncToken;
+    }
+}
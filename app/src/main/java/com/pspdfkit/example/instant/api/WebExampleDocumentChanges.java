@@ -0,0 +1,44 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Changes of the document list on example server.
+ */
+public class WebExampleDocumentChanges {
+    /** Documents that were added to the document list. */
+    @NonNull public final List<WebExampleDocumentDescriptor> addedDocuments;
+    /** Documents whose title or layers changed. */
+    @NonNull public final List<WebExampleDocumentDescriptor> changedDocuments;
+    /** Ids of documents that were removed from the document list. */
+    @NonNull public final List<String> removedDocumentIds;
+    /** Token for retrieving the next changes, {@code null} if changes can't be retrieved incrementally anymore. */
+    @Nullable public final String syncToken;
+
+    public WebExampleDocumentChanges(@NonNull List<WebExampleDocumentDescriptor> addedDocuments,
+                                     @NonNull List<WebExampleDocumentDescriptor> changedDocuments,
+                                     @NonNull List<String> removedDocumentIds,
+                                     @Nullable String syncToken) {
+        this.addedDocuments = addedDocuments;
+        this.changedDocuments = changedDocuments;
+        this.removedDocumentIds = removedDocumentIds;
+        this.syncToken = syncToken;
+    }
+
+    /**
+     * Returns {@code true} if there are no changes.
+     */
+    public boolean isEmpty() {
+        return addedDocuments.isEmpty() && changedDocuments.isEmpty() && removedDocumentIds.isEmpty();
+    }
+}
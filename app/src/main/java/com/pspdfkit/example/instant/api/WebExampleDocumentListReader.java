@@ -0,0 +1,141 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads documents of a "GET /api/documents" response one by one, so the whole {@link WebExampleDocumentList} never has
+ * to be held in memory. The response may be a single page of the document list, see {@link #getNextCursor()}.
+ */
+class WebExampleDocumentListReader implements Closeable {
+
+    private static final String FIELD_DOCUMENTS = "documents";
+    private static final String FIELD_NEXT_CURSOR = "next_cursor";
+    private static final String FIELD_SYNC_TOKEN = "sync_token";
+
+    @NonNull private final JsonReader jsonReader;
+    @NonNull private final TypeAdapter<WebExampleDocument> documentAdapter;
+
+    /** {@code true} once the top level object has been entered. */
+    private boolean isStarted;
+    /** {@code true} while the reader is positioned inside of the documents array. */
+    private boolean isReadingDocuments;
+    /** Cursor of the next page of the document list, if there is one. */
+    @Nullable private String nextCursor;
+    /** Token for retrieving changes of the document list, if the server supports it. */
+    @Nullable private String syncToken;
+
+    WebExampleDocumentListReader(@NonNull Gson gson, @NonNull Reader reader) {
+        this.jsonReader = new JsonReader(reader);
+        this.documentAdapter = gson.getAdapter(WebExampleDocument.class);
+    }
+
+    /**
+     * Reads the next document of the list.
+     * @return The next document, or {@code null} if all documents have been read.
+     */
+    @Nullable
+    WebExampleDocument nextDocument() throws IOException {
+        if (!isReadingDocuments && !seekDocuments()) {
+            return null;
+        }
+        if (jsonReader.hasNext()) {
+            return documentAdapter.read(jsonReader);
+        }
+        jsonReader.endArray();
+        isReadingDocuments = false;
+        readRemainingFields();
+        return null;
+    }
+
+    /**
+     * Returns cursor of the next document list page, or {@code null} if this is the last page. Only known once all
+     * documents have been read.
+     */
+    @Nullable
+    String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Returns token for retrieving later changes of the document list, or {@code null} if the server did not send any.
+     * Only known once all documents have been read.
+     */
+    @Nullable
+    String getSyncToken() {
+        return syncToken;
+    }
+
+    /**
+     * Moves the reader to the first element of the documents array.
+     * @return {@code true} if the documents array was found.
+     */
+    private boolean seekDocuments() throws IOException {
+        // The documents array is only read once.
+        if (isStarted) return false;
+        isStarted = true;
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            final String name = jsonReader.nextName();
+            if (FIELD_DOCUMENTS.equals(name)) {
+                jsonReader.beginArray();
+                isReadingDocuments = true;
+                return true;
+            }
+            readField(name);
+        }
+        jsonReader.endObject();
+        return false;
+    }
+
+    /**
+     * Reads fields following the documents array.
+     */
+    private void readRemainingFields() throws IOException {
+        while (jsonReader.hasNext()) {
+            readField(jsonReader.nextName());
+        }
+        jsonReader.endObject();
+    }
+
+    private void readField(@NonNull String name) throws IOException {
+        if (FIELD_NEXT_CURSOR.equals(name)) {
+            nextCursor = readNonEmptyString();
+        } else if (FIELD_SYNC_TOKEN.equals(name)) {
+            syncToken = readNonEmptyString();
+        } else {
+            jsonReader.skipValue();
+        }
+    }
+
+    @Nullable
+    private String readNonEmptyString() throws IOException {
+        if (jsonReader.peek() != JsonToken.STRING) {
+            jsonReader.skipValue();
+            return null;
+        }
+        final String value = jsonReader.nextString();
+        return value.isEmpty() ? null : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        jsonReader.close();
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+
+/**
+ * Result of "POST /api/documents/tokens". Documents for which no token could be issued are missing from the result.
+ */
+class WebExampleDocumentTokens {
+    /** Authentication tokens keyed by document id. */
+    @NonNull public final Map<String, String> tokens;
+
+    public WebExampleDocumentTokens(@NonNull Map<String, String> tokens) {
+        this.tokens = tokens;
+    }
+}
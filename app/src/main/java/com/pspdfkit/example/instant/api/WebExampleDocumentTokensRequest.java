@@ -0,0 +1,23 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Body of "POST /api/documents/tokens".
+ */
+class WebExampleDocumentTokensRequest {
+    @NonNull public final List<String> ids;
+
+    public WebExampleDocumentTokensRequest(@NonNull List<String> ids) {
+        this.ids = ids;
+    }
+}
@@ -7,19 +7,51 @@
 
 package com.pspdfkit.example.instant.api;
 
+import androidx.annotation.Nullable;
 import io.reactivex.Single;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+import retrofit2.http.Body;
 import retrofit2.http.GET;
 import retrofit2.http.Header;
+import retrofit2.http.Headers;
+import retrofit2.http.POST;
 import retrofit2.http.Path;
+import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 /**
  * Retrofit client for Web example API.
  */
 interface WebExampleRetrofitService {
 
+    /**
+     * Lists documents. The list is always revalidated with the server, so an unchanged list is answered from the HTTP cache.
+     * The body is not buffered, it is decoded while it is downloaded.
+     * @param cursor Cursor of the requested page as returned in "next_cursor" of the previous page, {@code null} for the first page.
+     * @param limit  Maximal number of documents per page. Servers without paging support ignore it and return all documents.
+     */
+    @Streaming
+    @Headers("Cache-Control: no-cache")
     @GET("/api/documents")
-    Single<WebExampleDocumentList> getDocuments(@Header("Authorization") String userAuthorization);
+    Single<Response<ResponseBody>> getDocuments(@Header("Authorization") String userAuthorization,
+                                                @Nullable @Query("cursor") String cursor,
+                                                @Query("limit") int limit);
+
+    /**
+     * Lists changes of the document list since the given sync token. This endpoint is optional, servers without it respond
+     * with an error status. Expired sync tokens are answered with "410 Gone".
+     */
+    @GET("/api/documents/changes")
+    Single<Response<WebExampleDocumentChangeList>> getDocumentChanges(@Header("Authorization") String userAuthorization,
+                                                                      @Query("since") String syncToken);
 
     @GET("/api/document/{documentId}")
     Single<WebExampleDocumentAuthenticationResult> getJwt(@Header("Authorization") String userAuthorization, @Path("documentId") String documentId);
+
+    /**
+     * Batched variant of {@link #getJwt(String, String)}. This endpoint is optional, servers without it respond with an error status.
+     */
+    @POST("/api/documents/tokens")
+    Single<Response<WebExampleDocumentTokens>> getJwts(@Header("Authorization") String userAuthorization, @Body WebExampleDocumentTokensRequest request);
 }
@@ -0,0 +1,457 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written Gson type adapters for web example API models. These replace Gson's reflective adapters, which are slow
+ * to create and to run on first use. Unlike those, they fail with {@link JsonParseException} when a required field is
+ * missing, instead of creating models with {@code null} in non-null fields.
+ */
+final class WebExampleTypeAdapters {
+
+    private WebExampleTypeAdapters() {
+    }
+
+    /**
+     * Creates {@link Gson} instance using the type adapters for all web example API models.
+     */
+    @NonNull
+    static Gson createGson() {
+        final DocumentAdapter documentAdapter = new DocumentAdapter();
+        return new GsonBuilder()
+            .registerTypeAdapter(WebExampleDocument.class, documentAdapter)
+            .registerTypeAdapter(WebExampleDocumentList.class, new DocumentListAdapter(documentAdapter))
+            .registerTypeAdapter(WebExampleDocumentAuthenticationResult.class, new AuthenticationResultAdapter())
+            .registerTypeAdapter(WebExampleDocumentTokensRequest.class, new TokensRequestAdapter())
+            .registerTypeAdapter(WebExampleDocumentTokens.class, new TokensAdapter())
+            .registerTypeAdapter(WebExampleDocumentChangeList.class, new ChangeListAdapter(documentAdapter))
+            .create();
+    }
+
+    private static class DocumentAdapter extends TypeAdapter<WebExampleDocument> {
+
+        @Override
+        public void write(@NonNull JsonWriter out, @Nullable WebExampleDocument document) throws IOException {
+            if (document == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(document.id);
+            out.name("title").value(document.title);
+            out.name("layers");
+            writeStringList(out, document.layers);
+            out.name("tokens");
+            writeStringList(out, document.tokens);
+            out.endObject();
+        }
+
+        @Nullable
+        @Override
+        public WebExampleDocument read(@NonNull JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String id = null;
+            String title = null;
+            List<String> layers = null;
+            List<String> tokens = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = readRequiredString(in, "id");
+                        break;
+                    case "title":
+                        title = readRequiredString(in, "title");
+                        break;
+                    case "layers":
+                        layers = readRequiredStringList(in, "layers");
+                        break;
+                    case "tokens":
+                        tokens = readRequiredStringList(in, "tokens");
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new WebExampleDocument(
+                requireField(id, "id", in),
+                requireField(title, "title", in),
+                requireField(layers, "layers", in),
+                requireField(tokens, "tokens", in));
+        }
+    }
+
+    private static class DocumentListAdapter extends TypeAdapter<WebExampleDocumentList> {
+
+        @NonNull private final DocumentAdapter documentAdapter;
+
+        DocumentListAdapter(@NonNull DocumentAdapter documentAdapter) {
+            this.documentAdapter = documentAdapter;
+        }
+
+        @Override
+        public void write(@NonNull JsonWriter out, @Nullable WebExampleDocumentList documentList) throws IOException {
+            if (documentList == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("documents");
+            out.beginArray();
+            for (WebExampleDocument document : documentList.documents) {
+                documentAdapter.write(out, document);
+            }
+            out.endArray();
+            out.endObject();
+        }
+
+        @Nullable
+        @Override
+        public WebExampleDocumentList read(@NonNull JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<WebExampleDocument> documents = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("documents".equals(in.nextName())) {
+                    requireToken(in, JsonToken.BEGIN_ARRAY, "documents");
+                    documents = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        final WebExampleDocument document = documentAdapter.read(in);
+                        if (document != null) {
+                            documents.add(document);
+                        }
+                    }
+                    in.endArray();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new WebExampleDocumentList(requireField(documents, "documents", in));
+        }
+    }
+
+    private static class AuthenticationResultAdapter extends TypeAdapter<WebExampleDocumentAuthenticationResult> {
+
+        @Override
+        public void write(@NonNull JsonWriter out, @Nullable WebExampleDocumentAuthenticationResult result) throws IOException {
+            if (result == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("success").value(result.success);
+            out.name("token").value(result.token);
+            out.endObject();
+        }
+
+        @Nullable
+        @Override
+        public WebExampleDocumentAuthenticationResult read(@NonNull JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Boolean success = null;
+            String token = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "success":
+                        requireToken(in, JsonToken.BOOLEAN, "success");
+                        success = in.nextBoolean();
+                        break;
+                    case "token":
+                        token = readString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            // Failed authentication comes without a token.
+            if (requireField(success, "success", in)) {
+                return new WebExampleDocumentAuthenticationResult(true, requireField(token, "token", in));
+            }
+            return new WebExampleDocumentAuthenticationResult(false, token != null ? token : "");
+        }
+    }
+
+    private static class TokensRequestAdapter extends TypeAdapter<WebExampleDocumentTokensRequest> {
+
+        @Override
+        public void write(@NonNull JsonWriter out, @Nullable WebExampleDocumentTokensRequest request) throws IOException {
+            if (request == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("ids");
+            writeStringList(out, request.ids);
+            out.endObject();
+        }
+
+        @Nullable
+        @Override
+        public WebExampleDocumentTokensRequest read(@NonNull JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<String> ids = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("ids".equals(in.nextName())) {
+                    ids = readRequiredStringList(in, "ids");
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new WebExampleDocumentTokensRequest(requireField(ids, "ids", in));
+        }
+    }
+
+    private static class TokensAdapter extends TypeAdapter<WebExampleDocumentTokens> {
+
+        @Override
+        public void write(@NonNull JsonWriter out, @Nullable WebExampleDocumentTokens documentTokens) throws IOException {
+            if (documentTokens == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("tokens");
+            out.beginObject();
+            for (Map.Entry<String, String> token : documentTokens.tokens.entrySet()) {
+                out.name(token.getKey()).value(token.getValue());
+            }
+            out.endObject();
+            out.endObject();
+        }
+
+        @Nullable
+        @Override
+        public WebExampleDocumentTokens read(@NonNull JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Map<String, String> tokens = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("tokens".equals(in.nextName())) {
+                    requireToken(in, JsonToken.BEGIN_OBJECT, "tokens");
+                    tokens = new HashMap<>();
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        final String documentId = in.nextName();
+                        final String token = readString(in);
+                        if (!token.isEmpty()) {
+                            tokens.put(documentId, token);
+                        }
+                    }
+                    in.endObject();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new WebExampleDocumentTokens(requireField(tokens, "tokens", in));
+        }
+    }
+
+    private static class ChangeListAdapter extends TypeAdapter<WebExampleDocumentChangeList> {
+
+        @NonNull private final DocumentAdapter documentAdapter;
+
+        ChangeListAdapter(@NonNull DocumentAdapter documentAdapter) {
+            this.documentAdapter = documentAdapter;
+        }
+
+        @Override
+        public void write(@NonNull JsonWriter out, @Nullable WebExampleDocumentChangeList changeList) throws IOException {
+            if (changeList == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("added");
+            writeDocumentList(out, changeList.added);
+            out.name("changed");
+            writeDocumentList(out, changeList.changed);
+            out.name("removed");
+            writeStringList(out, changeList.removed);
+            out.name("sync_token").value(changeList.syncToken);
+            out.endObject();
+        }
+
+        private void writeDocumentList(@NonNull JsonWriter out, @NonNull List<WebExampleDocument> documents) throws IOException {
+            out.beginArray();
+            for (WebExampleDocument document : documents) {
+                documentAdapter.write(out, document);
+            }
+            out.endArray();
+        }
+
+        @Nullable
+        @Override
+        public WebExampleDocumentChangeList read(@NonNull JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<WebExampleDocument> added = Collections.emptyList();
+            List<WebExampleDocument> changed = Collections.emptyList();
+            List<String> removed = Collections.emptyList();
+            String syncToken = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "added":
+                        added = readDocumentList(in);
+                        break;
+                    case "changed":
+                        changed = readDocumentList(in);
+                        break;
+                    case "removed":
+                        removed = readStringList(in);
+                        break;
+                    case "sync_token":
+                        final String token = readString(in);
+                        syncToken = token.isEmpty() ? null : token;
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new WebExampleDocumentChangeList(added, changed, removed, syncToken);
+        }
+
+        @NonNull
+        private List<WebExampleDocument> readDocumentList(@NonNull JsonReader in) throws IOException {
+            if (in.peek() != JsonToken.BEGIN_ARRAY) {
+                in.skipValue();
+                return Collections.emptyList();
+            }
+            final List<WebExampleDocument> documents = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                final WebExampleDocument document = documentAdapter.read(in);
+                if (document != null) {
+                    documents.add(document);
+                }
+            }
+            in.endArray();
+            return documents;
+        }
+    }
+
+    /**
+     * Returns value of a required field.
+     * @throws JsonParseException if the field was missing from the object that was just read.
+     */
+    @NonNull
+    private static <T> T requireField(@Nullable T value, @NonNull String name, @NonNull JsonReader in) {
+        if (value == null) {
+            throw new JsonParseException("Missing required field \"" + name + "\" before " + in.getPath());
+        }
+        return value;
+    }
+
+    /**
+     * Makes sure the next value of a required field is of the expected type.
+     * @throws JsonParseException if the next value is of another type, including {@code null}.
+     */
+    private static void requireToken(@NonNull JsonReader in, @NonNull JsonToken expected, @NonNull String name) throws IOException {
+        final JsonToken token = in.peek();
+        if (token != expected) {
+            throw new JsonParseException("Expected " + expected + " for field \"" + name + "\" but was " + token + " at " + in.getPath());
+        }
+    }
+
+    @NonNull
+    private static String readRequiredString(@NonNull JsonReader in, @NonNull String name) throws IOException {
+        if (in.peek() == JsonToken.NUMBER) {
+            return in.nextString();
+        }
+        requireToken(in, JsonToken.STRING, name);
+        return in.nextString();
+    }
+
+    @NonNull
+    private static List<String> readRequiredStringList(@NonNull JsonReader in, @NonNull String name) throws IOException {
+        requireToken(in, JsonToken.BEGIN_ARRAY, name);
+        return readStringList(in);
+    }
+
+    /**
+     * Reads string value. Missing values and values of other types are read as empty string.
+     */
+    @NonNull
+    private static String readString(@NonNull JsonReader in) throws IOException {
+        final JsonToken token = in.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return in.nextString();
+        }
+        in.skipValue();
+        return "";
+    }
+
+    @NonNull
+    private static List<String> readStringList(@NonNull JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return Collections.emptyList();
+        }
+        final List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(readString(in));
+        }
+        in.endArray();
+        return values;
+    }
+
+    private static void writeStringList(@NonNull JsonWriter out, @NonNull List<String> values) throws IOException {
+        out.beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+}
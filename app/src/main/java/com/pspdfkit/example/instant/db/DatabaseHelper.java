@@ -12,6 +12,12 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import io.reactivex.Flowable;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Helper for documents database operations.
@@ -21,6 +27,8 @@ class DatabaseHelper extends SQLiteOpenHelper {
     // Tables.
     public static final String TABLE_DOCUMENTS = "documents";
     public static final String TABLE_LAYERS = "layers";
+    /** Full-text index over document titles. Rows are keyed by rowid of the document in {@link #TABLE_DOCUMENTS}. */
+    public static final String TABLE_DOCUMENTS_SEARCH = "documents_search";
     // Table columns.
     public static final String KEY_DOCUMENT_ID = "document_id";
     public static final String KEY_JWT = "authentication_token";
@@ -28,36 +36,54 @@ class DatabaseHelper extends SQLiteOpenHelper {
     public static final String KEY_LAYER_NAME = "layer_name";
     // Database info.
     private static final String DB_NAME = "web_example_db";
-    private static final int DB_VERSION = 2;
-    @Nullable private static DatabaseHelper instance;
+    private static final int DB_VERSION = 4;
+    /** Item emitted by {@link #observeTablesChanged()}. */
+    static final Object TABLES_CHANGED = new Object();
+
+    /** Helpers shared by all users of the same database, keyed by database name. */
+    @NonNull private static final Map<String, DatabaseHelper> instances = new HashMap<>();
 
+    /**
+     * Returns helper for the database with given name, or for the default database if the name is {@code null}. The
+     * helper and its connection are shared and stay open for the lifetime of the process.
+     */
     @NonNull
     public static synchronized DatabaseHelper newInstance(@NonNull Context context, @Nullable String databaseName) {
         final String dbName = databaseName == null ? DB_NAME : databaseName;
 
-        if (instance != null && instance.databaseName.equals(databaseName)) {
-            return instance;
-        } else {
-            return new DatabaseHelper(context.getApplicationContext(), dbName);
+        DatabaseHelper instance = instances.get(dbName);
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext(), dbName);
+            instances.put(dbName, instance);
         }
+        return instance;
     }
+    @NonNull private final Context context;
     @NonNull private final String databaseName;
+    @NonNull private final FlowableProcessor<Object> tablesChanged = PublishProcessor.create().toSerialized();
+    @NonNull private final DocumentWriteQueue writeQueue = new DocumentWriteQueue(this);
+    @NonNull private final DocumentDescriptorCache descriptorCache = new DocumentDescriptorCache();
 
     private DatabaseHelper(@NonNull Context context, @NonNull String databaseName) {
         super(context, databaseName, null, DB_VERSION);
+        this.context = context;
         this.databaseName = databaseName;
+        // Lets reads run on their own connections while a refresh is writing.
+        setWriteAheadLoggingEnabled(true);
     }
 
-    private static void removeInstanceWithName(@NonNull String databaseName) {
-        if (instance != null && instance.databaseName.equals(databaseName)) {
-            instance = null;
-        }
+    @Override
+    public void onConfigure(@NonNull SQLiteDatabase db) {
+        super.onConfigure(db);
+        // Layers are removed together with their document.
+        db.setForeignKeyConstraintsEnabled(true);
     }
 
     @Override
     public void onCreate(@NonNull SQLiteDatabase db) {
         createDocumentsTable(db);
         createLayersTable(db);
+        createDocumentsSearchTable(db);
     }
 
     private void createDocumentsTable(@NonNull SQLiteDatabase db) {
@@ -68,10 +94,18 @@ class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     private void createLayersTable(@NonNull SQLiteDatabase db) {
-        String CREATE_LAYERS_TABLE = "CREATE TABLE " + TABLE_LAYERS + "(" +
-            KEY_DOCUMENT_ID + " TEXT NOT NULL," +
-            KEY_LAYER_NAME + " TEXT," +
-            KEY_JWT + " TEXT NOT NULL )";
+        createLayersTable(db, TABLE_LAYERS);
+    }
+
+    /**
+     * Creates layers table. Default layer is stored with empty name. The primary key also serves lookups by document id.
+     */
+    private void createLayersTable(@NonNull SQLiteDatabase db, @NonNull String tableName) {
+        String CREATE_LAYERS_TABLE = "CREATE TABLE " + tableName + "(" +
+            KEY_DOCUMENT_ID + " TEXT NOT NULL REFERENCES " + TABLE_DOCUMENTS + "(" + KEY_DOCUMENT_ID + ") ON DELETE CASCADE," +
+            KEY_LAYER_NAME + " TEXT NOT NULL DEFAULT ''," +
+            KEY_JWT + " TEXT NOT NULL," +
+            "PRIMARY KEY (" + KEY_DOCUMENT_ID + ", " + KEY_LAYER_NAME + ") )";
         db.execSQL(CREATE_LAYERS_TABLE);
     }
 
@@ -79,13 +113,102 @@ class DatabaseHelper extends SQLiteOpenHelper {
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         if (oldVersion == 1) {
             db.execSQL("DROP TABLE IF EXISTS " + TABLE_DOCUMENTS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_LAYERS);
             createDocumentsTable(db);
             createLayersTable(db);
+            createDocumentsSearchTable(db);
+        } else {
+            if (oldVersion == 2) {
+                migrateLayersTableToVersion3(db);
+            }
+            if (oldVersion <= 3) {
+                createDocumentsSearchTable(db);
+                // Index documents that were stored before the search table existed.
+                db.execSQL("INSERT INTO " + TABLE_DOCUMENTS_SEARCH + "(" + TABLE_DOCUMENTS_SEARCH + ") VALUES('rebuild')");
+            }
         }
     }
 
-    public void deleteDatabase(@NonNull Context context) {
+    /**
+     * Creates full-text index over document titles. The index reads titles from documents table and is kept up to date
+     * by triggers, so write paths don't need to maintain it.
+     */
+    private void createDocumentsSearchTable(@NonNull SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_DOCUMENTS_SEARCH + " USING fts4(" +
+            "content=\"" + TABLE_DOCUMENTS + "\", " + KEY_DOCUMENT_TITLE + ")");
+        db.execSQL("CREATE TRIGGER " + TABLE_DOCUMENTS_SEARCH + "_before_delete BEFORE DELETE ON " + TABLE_DOCUMENTS + " BEGIN " +
+            "DELETE FROM " + TABLE_DOCUMENTS_SEARCH + " WHERE docid = old.rowid; END");
+        db.execSQL("CREATE TRIGGER " + TABLE_DOCUMENTS_SEARCH + "_after_insert AFTER INSERT ON " + TABLE_DOCUMENTS + " BEGIN " +
+            "INSERT INTO " + TABLE_DOCUMENTS_SEARCH + "(docid, " + KEY_DOCUMENT_TITLE + ") VALUES(new.rowid, new." + KEY_DOCUMENT_TITLE + "); END");
+        createDocumentsSearchUpdateTriggers(db);
+    }
+
+    /**
+     * Creates triggers re-indexing documents whose title changed. Updates that keep the title don't touch the index.
+     */
+    private void createDocumentsSearchUpdateTriggers(@NonNull SQLiteDatabase db) {
+        final String titleChanged = " WHEN old." + KEY_DOCUMENT_TITLE + " IS NOT new." + KEY_DOCUMENT_TITLE;
+        db.execSQL("CREATE TRIGGER " + TABLE_DOCUMENTS_SEARCH + "_before_update BEFORE UPDATE OF " + KEY_DOCUMENT_TITLE + " ON " + TABLE_DOCUMENTS +
+            titleChanged + " BEGIN " +
+            "DELETE FROM " + TABLE_DOCUMENTS_SEARCH + " WHERE docid = old.rowid; END");
+        db.execSQL("CREATE TRIGGER " + TABLE_DOCUMENTS_SEARCH + "_after_update AFTER UPDATE OF " + KEY_DOCUMENT_TITLE + " ON " + TABLE_DOCUMENTS +
+            titleChanged + " BEGIN " +
+            "INSERT INTO " + TABLE_DOCUMENTS_SEARCH + "(docid, " + KEY_DOCUMENT_TITLE + ") VALUES(new.rowid, new." + KEY_DOCUMENT_TITLE + "); END");
+    }
+
+    /**
+     * Moves layers into a keyed table. Duplicate layers are collapsed to the most recently inserted one and layers of
+     * documents that no longer exist are dropped.
+     */
+    private void migrateLayersTableToVersion3(@NonNull SQLiteDatabase db) {
+        final String TABLE_LAYERS_V3 = TABLE_LAYERS + "_v3";
+        createLayersTable(db, TABLE_LAYERS_V3);
+        db.execSQL("INSERT OR REPLACE INTO " + TABLE_LAYERS_V3 + " (" + KEY_DOCUMENT_ID + ", " + KEY_LAYER_NAME + ", " + KEY_JWT + ")" +
+            " SELECT " + KEY_DOCUMENT_ID + ", IFNULL(" + KEY_LAYER_NAME + ", ''), " + KEY_JWT + " FROM " + TABLE_LAYERS +
+            " WHERE " + KEY_DOCUMENT_ID + " IN (SELECT " + KEY_DOCUMENT_ID + " FROM " + TABLE_DOCUMENTS + ")" +
+            " ORDER BY rowid");
+        db.execSQL("DROP TABLE " + TABLE_LAYERS);
+        db.execSQL("ALTER TABLE " + TABLE_LAYERS_V3 + " RENAME TO " + TABLE_LAYERS);
+    }
+
+    /**
+     * Closes and deletes the database file. The helper stays registered and creates an empty database the next time it
+     * is opened, so that users of the helper stay valid. Must only be called from the writer, see {@link #getWriteQueue()}.
+     */
+    void deleteDatabase() {
+        close();
         context.deleteDatabase(databaseName);
-        removeInstanceWithName(databaseName);
+        descriptorCache.clear();
+    }
+
+    /**
+     * Returns the single writer of this database.
+     */
+    @NonNull
+    DocumentWriteQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    /**
+     * Returns cache of descriptors stored in this database.
+     */
+    @NonNull
+    DocumentDescriptorCache getDescriptorCache() {
+        return descriptorCache;
+    }
+
+    /**
+     * Notifies observers that a write to documents or layers table has been committed.
+     */
+    void notifyTablesChanged() {
+        tablesChanged.onNext(TABLES_CHANGED);
+    }
+
+    /**
+     * Observes committed writes to documents or layers table. Does not support backpressure.
+     */
+    @NonNull
+    Flowable<Object> observeTablesChanged() {
+        return tablesChanged;
     }
 }
@@ -0,0 +1,179 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.db;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
+import com.pspdfkit.example.instant.api.WebExampleDocumentLayerDescriptor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cache of document descriptors stored in the documents database, so that repeated reads don't have to query and
+ * rebuild them. Writes update the cache once they are committed.
+ *
+ * <p>Every write increments the cache generation. Reads remember the generation before querying the database and only
+ * fill the cache if no write was committed in the meantime, so stale query results never end up in the cache.
+ */
+class DocumentDescriptorCache {
+
+    /** Maximal number of cached descriptors. The complete document list is only cached if it fits into this bound. */
+    static final int MAX_CACHED_DOCUMENTS = 2000;
+
+    @NonNull private final LruCache<String, WebExampleDocumentDescriptor> documents = new LruCache<>(MAX_CACHED_DOCUMENTS);
+    /** All stored documents in database order, or {@code null} if not known. */
+    @Nullable private List<WebExampleDocumentDescriptor> allDocuments;
+    private long generation;
+
+    /**
+     * Returns current generation, to be passed when filling the cache with query results.
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    @Nullable
+    synchronized WebExampleDocumentDescriptor getDocument(@NonNull String documentId) {
+        return documents.get(documentId);
+    }
+
+    /**
+     * Returns all stored documents, or {@code null} if they are not cached. The returned list is unmodifiable.
+     */
+    @Nullable
+    synchronized List<WebExampleDocumentDescriptor> getAllDocuments() {
+        return allDocuments;
+    }
+
+    /**
+     * Caches documents read from the database.
+     * @param generation Generation of the cache before the documents were queried.
+     */
+    synchronized void putDocuments(long generation, @NonNull Collection<WebExampleDocumentDescriptor> readDocuments) {
+        if (generation != this.generation) return;
+        for (WebExampleDocumentDescriptor document : readDocuments) {
+            documents.put(document.documentId, document);
+        }
+    }
+
+    /**
+     * Caches complete list of documents read from the database.
+     * @param generation Generation of the cache before the documents were queried.
+     */
+    synchronized void putAllDocuments(long generation, @NonNull List<WebExampleDocumentDescriptor> readDocuments) {
+        if (generation != this.generation) return;
+        if (readDocuments.size() <= MAX_CACHED_DOCUMENTS) {
+            allDocuments = Collections.unmodifiableList(new ArrayList<>(readDocuments));
+        }
+        putDocuments(generation, readDocuments);
+    }
+
+    /**
+     * Updates cache after documents were removed and others were added on top of the remaining ones, in this order. Added
+     * documents that were already stored keep their position and the layers that are not part of the added descriptor.
+     * If all stored documents are cached, they are updated in place so that they stay usable after the write.
+     * @param removedDocumentIds Documents that were removed.
+     * @param addedDocuments Documents that were added or merged into the stored ones.
+     */
+    synchronized void onDocumentsWritten(@NonNull Collection<String> removedDocumentIds,
+                                         @NonNull List<WebExampleDocumentDescriptor> addedDocuments) {
+        generation++;
+        Map<String, WebExampleDocumentDescriptor> storedDocuments = null;
+        if (allDocuments != null) {
+            storedDocuments = new LinkedHashMap<>();
+            for (WebExampleDocumentDescriptor document : allDocuments) {
+                storedDocuments.put(document.documentId, document);
+            }
+        }
+        for (String documentId : removedDocumentIds) {
+            documents.remove(documentId);
+            if (storedDocuments != null) storedDocuments.remove(documentId);
+        }
+        for (WebExampleDocumentDescriptor document : addedDocuments) {
+            final WebExampleDocumentDescriptor storedDocument = storedDocuments != null
+                ? storedDocuments.get(document.documentId)
+                : documents.get(document.documentId);
+            if (storedDocuments == null && storedDocument == null) {
+                // Whether the document was stored before is not known, so neither are its remaining layers.
+                documents.remove(document.documentId);
+                continue;
+            }
+            final WebExampleDocumentDescriptor mergedDocument = mergeDocument(storedDocument, document);
+            documents.put(document.documentId, mergedDocument);
+            if (storedDocuments != null) storedDocuments.put(document.documentId, mergedDocument);
+        }
+        allDocuments = storedDocuments != null && storedDocuments.size() <= MAX_CACHED_DOCUMENTS
+            ? Collections.unmodifiableList(new ArrayList<>(storedDocuments.values()))
+            : null;
+    }
+
+    /**
+     * Updates cache after all stored documents were replaced.
+     * @param storedDocuments All documents stored after the write, in database order.
+     */
+    synchronized void onAllDocumentsWritten(@NonNull List<WebExampleDocumentDescriptor> storedDocuments) {
+        generation++;
+        documents.evictAll();
+        final List<WebExampleDocumentDescriptor> mergedDocuments = new ArrayList<>(storedDocuments.size());
+        for (WebExampleDocumentDescriptor document : storedDocuments) {
+            final WebExampleDocumentDescriptor mergedDocument = mergeDocument(null, document);
+            mergedDocuments.add(mergedDocument);
+            documents.put(document.documentId, mergedDocument);
+        }
+        allDocuments = mergedDocuments.size() <= MAX_CACHED_DOCUMENTS ? Collections.unmodifiableList(mergedDocuments) : null;
+    }
+
+    /**
+     * Returns document as it is read from the database after the given document was written on top of the stored one.
+     * Layers are ordered by name and the default layer is named {@code ""}, like in the database.
+     */
+    @NonNull
+    private static WebExampleDocumentDescriptor mergeDocument(@Nullable WebExampleDocumentDescriptor storedDocument,
+                                                              @NonNull WebExampleDocumentDescriptor document) {
+        final Map<String, String> layerTokens = new TreeMap<>();
+        if (storedDocument != null) {
+            for (WebExampleDocumentLayerDescriptor layer : storedDocument.layers) {
+                layerTokens.put(layer.layerName == null ? "" : layer.layerName, layer.jwt);
+            }
+        }
+        for (WebExampleDocumentLayerDescriptor layer : document.layers) {
+            layerTokens.put(layer.layerName == null ? "" : layer.layerName, layer.jwt);
+        }
+        final List<WebExampleDocumentLayerDescriptor> layers = new ArrayList<>(layerTokens.size());
+        for (Map.Entry<String, String> layerToken : layerTokens.entrySet()) {
+            layers.add(new WebExampleDocumentLayerDescriptor(document.documentId, layerToken.getKey(), layerToken.getValue()));
+        }
+        return new WebExampleDocumentDescriptor(document.documentId, document.title, layers);
+    }
+
+    /**
+     * Updates cache after all documents were removed.
+     */
+    synchronized void onAllDocumentsRemoved() {
+        generation++;
+        documents.evictAll();
+        allDocuments = Collections.emptyList();
+    }
+
+    /**
+     * Drops all cached documents.
+     */
+    synchronized void clear() {
+        generation++;
+        documents.evictAll();
+        allDocuments = null;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.db;
+
+import androidx.annotation.NonNull;
+import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
+
+import java.util.List;
+
+/**
+ * Page of documents read from {@link WebExampleDocumentsDatabase#getDocumentsAfter(long, int)}. Documents are positioned
+ * in the order in which they were stored, so positions of stored documents don't change when other documents are added.
+ */
+public class DocumentPage {
+
+    /** Position before the first stored document. Pass it to {@link WebExampleDocumentsDatabase#getDocumentsAfter(long, int)} to read the first page. */
+    public static final long START_POSITION = 0;
+
+    /** Documents on the page, empty if there are no more documents. */
+    @NonNull public final List<WebExampleDocumentDescriptor> documents;
+    /** Position of the last document on the page. Pass it to {@link WebExampleDocumentsDatabase#getDocumentsAfter(long, int)} to read the following page. */
+    public final long endPosition;
+
+    DocumentPage(@NonNull List<WebExampleDocumentDescriptor> documents, long endPosition) {
+        this.documents = documents;
+        this.endPosition = endPosition;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.db;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Single writer for the documents database. Writes are queued and run on a dedicated thread. All writes that are
+ * pending when the writer gets to them are applied in one transaction. Exclusive writes, like deleting the database, run
+ * on their own outside of any transaction. When a transaction fails, its writes are retried one by one so that a single
+ * failing write does not take the others down with it.
+ */
+class DocumentWriteQueue {
+
+    private static final String LOG_TAG = "DocumentWriteQueue";
+
+    /**
+     * Write queued for the database.
+     */
+    interface Write {
+        /**
+         * Applies the write inside the transaction of the writer. May be called again in a new transaction if the first
+         * transaction was rolled back.
+         * @return {@code true} if any rows were changed.
+         */
+        boolean apply(@NonNull SQLiteDatabase db) throws Exception;
+
+        /**
+         * Called once the write was committed or finally rolled back. Writes that were superseded before they were
+         * applied are finished together with the write superseding them.
+         * @param error Error that rolled back the write, or {@code null} if it was committed.
+         * @param applied {@code false} if the write was superseded and never applied.
+         */
+        void onFinished(@Nullable Throwable error, boolean applied);
+    }
+
+    private static class QueuedWrite {
+        @NonNull final Write write;
+        /** {@code true} if the write runs outside of any transaction. */
+        final boolean exclusive;
+        /** Pending writes that were dropped because this write overwrites all their rows. */
+        @NonNull final List<Write> supersededWrites = new ArrayList<>();
+
+        QueuedWrite(@NonNull Write write, boolean exclusive) {
+            this.write = write;
+            this.exclusive = exclusive;
+        }
+    }
+
+    @NonNull private final DatabaseHelper databaseHelper;
+    @NonNull private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, LOG_TAG));
+
+    @NonNull private final List<QueuedWrite> pendingWrites = new ArrayList<>();
+    private boolean isDrainScheduled;
+
+    DocumentWriteQueue(@NonNull DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Queues write for the database.
+     * @param supersedesPendingWrites {@code true} if the write overwrites all rows, so that writes still pending can be dropped.
+     */
+    void enqueue(@NonNull Write write, boolean supersedesPendingWrites) {
+        enqueue(new QueuedWrite(write, false), supersedesPendingWrites);
+    }
+
+    /**
+     * Queues write that runs on its own outside of any transaction, so that it may close or delete the database. The
+     * write supersedes all writes that are still pending, writes queued after it run once it finished.
+     */
+    void enqueueExclusive(@NonNull Write write) {
+        enqueue(new QueuedWrite(write, true), true);
+    }
+
+    private void enqueue(@NonNull QueuedWrite queuedWrite, boolean supersedesPendingWrites) {
+        synchronized (pendingWrites) {
+            if (supersedesPendingWrites) {
+                for (QueuedWrite pendingWrite : pendingWrites) {
+                    queuedWrite.supersededWrites.add(pendingWrite.write);
+                    queuedWrite.supersededWrites.addAll(pendingWrite.supersededWrites);
+                }
+                pendingWrites.clear();
+            }
+            pendingWrites.add(queuedWrite);
+            if (!isDrainScheduled) {
+                isDrainScheduled = true;
+                writer.execute(this::drain);
+            }
+        }
+    }
+
+    /**
+     * Applies all pending writes. Consecutive writes are applied in a single transaction, exclusive writes on their own.
+     */
+    private void drain() {
+        final List<QueuedWrite> writes;
+        synchronized (pendingWrites) {
+            writes = new ArrayList<>(pendingWrites);
+            pendingWrites.clear();
+            isDrainScheduled = false;
+        }
+
+        int start = 0;
+        while (start < writes.size()) {
+            int end = start + 1;
+            if (!writes.get(start).exclusive) {
+                while (end < writes.size() && !writes.get(end).exclusive) {
+                    end++;
+                }
+            }
+            applyWrites(writes.subList(start, end));
+            start = end;
+        }
+    }
+
+    /**
+     * Applies writes in a single transaction, or a single exclusive write without any transaction. If the transaction
+     * fails, every write is retried in a transaction of its own.
+     */
+    private void applyWrites(@NonNull List<QueuedWrite> writes) {
+        boolean changed = false;
+        Exception error = null;
+        try {
+            final SQLiteDatabase db = databaseHelper.getWritableDatabase();
+            if (writes.get(0).exclusive) {
+                changed = writes.get(0).write.apply(db);
+            } else {
+                db.beginTransactionNonExclusive();
+                try {
+                    for (QueuedWrite write : writes) {
+                        changed |= write.write.apply(db);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+        } catch (Exception e) {
+            error = e;
+        }
+
+        if (error != null && writes.size() > 1) {
+            // Writes share the transaction, so none of them was applied. Only writes that fail on their own are lost.
+            Log.w(LOG_TAG, "Error writing documents to the database, retrying writes one by one.", error);
+            for (QueuedWrite write : writes) {
+                applyWrites(Collections.singletonList(write));
+            }
+            return;
+        }
+        if (error != null) {
+            Log.e(LOG_TAG, "Error writing documents to the database.", error);
+        }
+
+        for (QueuedWrite write : writes) {
+            write.write.onFinished(error, true);
+            // Superseded writes are part of the superseding write, so they share its outcome.
+            for (Write supersededWrite : write.supersededWrites) {
+                supersededWrite.onFinished(error, false);
+            }
+        }
+        if (error == null && changed) {
+            databaseHelper.notifyTablesChanged();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.db;
+
+/**
+ * Signals that a database write was dropped before it was applied, because a later write replaced all documents. State
+ * derived from the dropped write, like the sync token of the document list it was written from, must not be persisted.
+ */
+public class DocumentWriteSupersededException extends Exception {
+
+    public DocumentWriteSupersededException() {
+        super("Database write was superseded by a later write.");
+    }
+}
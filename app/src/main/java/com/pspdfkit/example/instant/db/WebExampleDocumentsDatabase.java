@@ -10,171 +10,751 @@ package com.pspdfkit.example.instant.db;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.pspdfkit.example.instant.api.WebExampleDocumentChanges;
 import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
 import com.pspdfkit.example.instant.api.WebExampleDocumentLayerDescriptor;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
- * API for documents database store.
+ * API for documents database store. Instances share one connection per database, which is never closed, and use
+ * write-ahead logging so that reads are not blocked by running writes. Writes are queued and applied in the background
+ * by a single writer, which groups writes queued close together into one transaction.
  */
 public class WebExampleDocumentsDatabase {
 
     private static final String LOG_TAG = "DocumentsDatabase";
 
+    /** Minimal time between two queries triggered by database writes. */
+    private static final long DOCUMENTS_QUERY_THROTTLE_MS = 250;
+
     private final DatabaseHelper databaseHelper;
+    @NonNull private final Flowable<List<WebExampleDocumentDescriptor>> documents;
+    @NonNull private final Flowable<Integer> documentCount;
 
     public WebExampleDocumentsDatabase(@NonNull Context context) {
         this(context, null);
     }
 
-    private WebExampleDocumentsDatabase(@NonNull Context context, @Nullable String databaseName) {
+    /**
+     * Opens database with given name instead of the default database, so that tests don't share their data.
+     */
+    @VisibleForTesting
+    WebExampleDocumentsDatabase(@NonNull Context context, @Nullable String databaseName) {
         databaseHelper = DatabaseHelper.newInstance(context, databaseName);
+        final Flowable<Object> tablesChanged = databaseHelper.observeTablesChanged()
+            .startWith(DatabaseHelper.TABLES_CHANGED)
+            // Bursts of writes, like documents being persisted in batches during refresh, result in a single query.
+            .throttleLatest(DOCUMENTS_QUERY_THROTTLE_MS, TimeUnit.MILLISECONDS, true)
+            // Changes arriving while a query runs are coalesced into one follow-up query.
+            .onBackpressureLatest()
+            .observeOn(Schedulers.io(), false, 1);
+        documents = tablesChanged
+            .map(ignored -> getDocuments())
+            .replay(1)
+            .refCount();
+        documentCount = tablesChanged
+            .map(ignored -> getDocumentCount())
+            .replay(1)
+            .refCount();
+    }
+
+    @VisibleForTesting
+    @NonNull
+    DatabaseHelper getDatabaseHelper() {
+        return databaseHelper;
+    }
+
+    /**
+     * Observes documents stored in the database. Emits current documents on subscription and again whenever a write to
+     * the database commits. Subscribers share a single query and late subscribers receive the latest documents.
+     * @return Flowable emitting documents, scheduled on {@link Schedulers#io()}.
+     */
+    @NonNull
+    public Flowable<List<WebExampleDocumentDescriptor>> observeDocuments() {
+        return documents;
+    }
+
+    /**
+     * Observes number of documents stored in the database. Emits like {@link #observeDocuments()}, but without loading
+     * the documents themselves. Use together with {@link #getDocumentsAfter(long, int)} to show large document lists.
+     * @return Flowable emitting document count, scheduled on {@link Schedulers#io()}.
+     */
+    @NonNull
+    public Flowable<Integer> observeDocumentCount() {
+        return documentCount;
     }
 
     /**
-     * Adds list of documents to the database.
+     * Adds list of documents to the database. Documents that are already stored get the title and layer tokens of the
+     * added ones. The write is queued on subscription and applied in the background.
+     * @return Single emitting ids of stored documents whose title or layers were changed by the write, once it was
+     * committed. Fails with the error that rolled back the write, or with {@link DocumentWriteSupersededException} if a
+     * later write replaced all documents before this one was applied. Success is signalled on the writer thread, before
+     * any later write is applied.
      */
-    public void addDocuments(@NonNull List<WebExampleDocumentDescriptor> documents) {
-        final SQLiteDatabase db = databaseHelper.getWritableDatabase();
-        db.beginTransaction();
+    @NonNull
+    public Single<List<String>> addDocuments(@NonNull final List<WebExampleDocumentDescriptor> documents) {
+        return Single.create(emitter -> databaseHelper.getWriteQueue().enqueue(new DocumentWriteQueue.Write() {
+            @Nullable private List<String> changedDocumentIds;
+
+            @Override
+            public boolean apply(@NonNull SQLiteDatabase db) {
+                changedDocumentIds = addDocumentsInternal(db, documents);
+                return !documents.isEmpty();
+            }
+
+            @Override
+            public void onFinished(@Nullable Throwable error, boolean applied) {
+                if (error != null) {
+                    emitter.tryOnError(error);
+                } else if (!applied || changedDocumentIds == null) {
+                    emitter.tryOnError(new DocumentWriteSupersededException());
+                } else {
+                    databaseHelper.getDescriptorCache().onDocumentsWritten(Collections.<String>emptyList(), documents);
+                    emitter.onSuccess(changedDocumentIds);
+                }
+            }
+        }, false));
+    }
+
+    /**
+     * Writes documents and their layers using statements that are compiled once per call and re-bound for every row.
+     * @return Ids of documents that were already stored and whose title or layers were changed.
+     */
+    @NonNull
+    private List<String> addDocumentsInternal(@NonNull SQLiteDatabase db,
+                                              @NonNull List<WebExampleDocumentDescriptor> documents) {
+        if (documents.isEmpty()) return Collections.emptyList();
+
+        // Existing documents are updated in place. Replacing them would delete their layers through the foreign key.
+        // Documents whose title did not change are skipped, so that they are not re-indexed for search.
+        final SQLiteStatement updateDocumentStatement = db.compileStatement("UPDATE " + DatabaseHelper.TABLE_DOCUMENTS +
+            " SET " + DatabaseHelper.KEY_DOCUMENT_TITLE + " = ? WHERE " + DatabaseHelper.KEY_DOCUMENT_ID + " = ?" +
+            " AND " + DatabaseHelper.KEY_DOCUMENT_TITLE + " IS NOT ?");
+        // Ignored for documents that already exist, either unchanged or just updated.
+        final SQLiteStatement insertDocumentStatement = db.compileStatement("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_DOCUMENTS +
+            " (" + DatabaseHelper.KEY_DOCUMENT_ID + ", " + DatabaseHelper.KEY_DOCUMENT_TITLE + ") VALUES (?, ?)");
+        // Layers are keyed by document id and layer name. Existing layers are only written if their token changed.
+        final SQLiteStatement updateLayerStatement = db.compileStatement("UPDATE " + DatabaseHelper.TABLE_LAYERS +
+            " SET " + DatabaseHelper.KEY_JWT + " = ? WHERE " + DatabaseHelper.KEY_DOCUMENT_ID + " = ?" +
+            " AND " + DatabaseHelper.KEY_LAYER_NAME + " = ? AND " + DatabaseHelper.KEY_JWT + " IS NOT ?");
+        final SQLiteStatement insertLayerStatement = db.compileStatement("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_LAYERS +
+            " (" + DatabaseHelper.KEY_DOCUMENT_ID + ", " + DatabaseHelper.KEY_LAYER_NAME + ", " + DatabaseHelper.KEY_JWT + ") VALUES (?, ?, ?)");
+        // Documents might be listed more than once, but are only reported once.
+        final Set<String> changedDocumentIds = new LinkedHashSet<>();
         try {
-            addDocumentsInternal(db, documents);
-            db.setTransactionSuccessful();
-        } catch (Exception e) {
-            Log.e(LOG_TAG, "Error adding documents to the database.", e);
+            for (WebExampleDocumentDescriptor document : documents) {
+                boolean inserted = false;
+                boolean changed = false;
+                updateDocumentStatement.bindString(1, document.title);
+                updateDocumentStatement.bindString(2, document.documentId);
+                updateDocumentStatement.bindString(3, document.title);
+                if (updateDocumentStatement.executeUpdateDelete() == 0) {
+                    insertDocumentStatement.bindString(1, document.documentId);
+                    insertDocumentStatement.bindString(2, document.title);
+                    inserted = insertDocumentStatement.executeInsert() != -1;
+                } else {
+                    changed = true;
+                }
+
+                // Put document layers into layers table.
+                for (WebExampleDocumentLayerDescriptor layer : document.layers) {
+                    final String layerName = layer.layerName == null ? "" : layer.layerName;
+                    updateLayerStatement.bindString(1, layer.jwt);
+                    updateLayerStatement.bindString(2, document.documentId);
+                    updateLayerStatement.bindString(3, layerName);
+                    updateLayerStatement.bindString(4, layer.jwt);
+                    if (updateLayerStatement.executeUpdateDelete() > 0) {
+                        changed = true;
+                    } else {
+                        insertLayerStatement.bindString(1, document.documentId);
+                        insertLayerStatement.bindString(2, layerName);
+                        insertLayerStatement.bindString(3, layer.jwt);
+                        changed |= insertLayerStatement.executeInsert() != -1;
+                    }
+                }
+                if (changed && !inserted) {
+                    changedDocumentIds.add(document.documentId);
+                }
+            }
         } finally {
-            db.endTransaction();
-            db.close();
+            updateDocumentStatement.close();
+            insertDocumentStatement.close();
+            updateLayerStatement.close();
+            insertLayerStatement.close();
         }
+        return new ArrayList<>(changedDocumentIds);
     }
 
-    private void addDocumentsInternal(@NonNull SQLiteDatabase db,
-                                      @NonNull List<WebExampleDocumentDescriptor> documents) {
+    /**
+     * Replaces documents in the database. Incoming documents are compared with the stored ones and only rows that
+     * actually differ are written. The write is queued on subscription and supersedes all writes that are still pending.
+     * @return Single emitting changes that were applied to the database, once the write was committed. These carry no
+     * sync token. Fails with the error that rolled back the write, or with {@link DocumentWriteSupersededException} if a
+     * later write replaced all documents before this one was applied. Success is signalled on the writer thread, before
+     * any later write is applied.
+     */
+    @NonNull
+    public Single<WebExampleDocumentChanges> replaceDocuments(@NonNull final List<WebExampleDocumentDescriptor> documents) {
+        return Single.create(emitter -> databaseHelper.getWriteQueue().enqueue(new DocumentWriteQueue.Write() {
+            @Nullable private WebExampleDocumentChanges changes;
+            @NonNull private final List<WebExampleDocumentDescriptor> storedDocuments = new ArrayList<>();
+
+            @Override
+            public boolean apply(@NonNull SQLiteDatabase db) {
+                changes = replaceDocumentsInternal(db, documents, storedDocuments);
+                return !changes.isEmpty();
+            }
+
+            @Override
+            public void onFinished(@Nullable Throwable error, boolean applied) {
+                if (error != null) {
+                    emitter.tryOnError(error);
+                } else if (!applied || changes == null) {
+                    emitter.tryOnError(new DocumentWriteSupersededException());
+                } else {
+                    databaseHelper.getDescriptorCache().onAllDocumentsWritten(storedDocuments);
+                    emitter.onSuccess(changes);
+                }
+            }
+        }, true));
+    }
+
+    /**
+     * Replaces stored documents with the given ones.
+     * @param storedDocumentsOut Filled with all documents stored after the write, in database order.
+     */
+    @NonNull
+    private WebExampleDocumentChanges replaceDocumentsInternal(@NonNull SQLiteDatabase db,
+                                                               @NonNull List<WebExampleDocumentDescriptor> documents,
+                                                               @NonNull List<WebExampleDocumentDescriptor> storedDocumentsOut) {
+        final List<WebExampleDocumentDescriptor> addedDocuments = new ArrayList<>();
+        final List<WebExampleDocumentDescriptor> changedDocuments = new ArrayList<>();
+        final List<String> removedDocumentIds = new ArrayList<>();
+
+        // Replace supersedes all pending writes, so it always runs first in its transaction and cached documents match
+        // the database. Earlier writes keep the cached documents up to date, so these are usually not queried.
+        final List<WebExampleDocumentDescriptor> cachedDocuments = databaseHelper.getDescriptorCache().getAllDocuments();
+        final List<WebExampleDocumentDescriptor> storedDocumentList = cachedDocuments != null ? cachedDocuments : getDocumentsInternal(db);
+        final Map<String, WebExampleDocumentDescriptor> storedDocuments = new HashMap<>();
+        for (WebExampleDocumentDescriptor storedDocument : storedDocumentList) {
+            storedDocuments.put(storedDocument.documentId, storedDocument);
+        }
+        // Later duplicates of the same document win, like they did when all documents were re-inserted.
+        final Map<String, WebExampleDocumentDescriptor> newDocuments = new LinkedHashMap<>();
         for (WebExampleDocumentDescriptor document : documents) {
+            newDocuments.put(document.documentId, document);
+        }
+
+        for (WebExampleDocumentDescriptor document : newDocuments.values()) {
+            final WebExampleDocumentDescriptor storedDocument = storedDocuments.remove(document.documentId);
+            if (storedDocument == null) {
+                addedDocuments.add(document);
+            } else if (updateDocumentInternal(db, storedDocument, document)) {
+                changedDocuments.add(document);
+            }
+        }
+        // Documents left over are no longer part of the document list.
+        for (String documentId : storedDocuments.keySet()) {
+            removeDocumentInternal(db, documentId);
+            removedDocumentIds.add(documentId);
+        }
+        addDocumentsInternal(db, addedDocuments);
+
+        // Kept documents stay in place and added ones are appended, like they are read from the database.
+        storedDocumentsOut.clear();
+        for (WebExampleDocumentDescriptor storedDocument : storedDocumentList) {
+            final WebExampleDocumentDescriptor document = newDocuments.get(storedDocument.documentId);
+            if (document != null) storedDocumentsOut.add(document);
+        }
+        storedDocumentsOut.addAll(addedDocuments);
+        return new WebExampleDocumentChanges(addedDocuments, changedDocuments, removedDocumentIds, null);
+    }
+
+    /**
+     * Writes differences between stored and new version of a document.
+     * @return {@code true} if anything was written.
+     */
+    private boolean updateDocumentInternal(@NonNull SQLiteDatabase db,
+                                           @NonNull WebExampleDocumentDescriptor storedDocument,
+                                           @NonNull WebExampleDocumentDescriptor document) {
+        boolean changed = false;
+        if (!storedDocument.title.equals(document.title)) {
             final ContentValues contentValues = new ContentValues();
-            contentValues.put(DatabaseHelper.KEY_DOCUMENT_ID, document.documentId);
             contentValues.put(DatabaseHelper.KEY_DOCUMENT_TITLE, document.title);
-            db.insertWithOnConflict(DatabaseHelper.TABLE_DOCUMENTS, null, contentValues, SQLiteDatabase.CONFLICT_REPLACE);
+            db.update(DatabaseHelper.TABLE_DOCUMENTS, contentValues, DatabaseHelper.KEY_DOCUMENT_ID + " = ?", new String[] {document.documentId});
+            changed = true;
+        }
 
-            // Put document layers into layers table.
-            for (WebExampleDocumentLayerDescriptor layer : document.layers) {
-                final ContentValues layerContentValues = new ContentValues();
+        final Map<String, String> storedLayerTokens = getLayerTokens(storedDocument);
+        final Map<String, String> layerTokens = getLayerTokens(document);
+        for (Map.Entry<String, String> layerToken : layerTokens.entrySet()) {
+            final String storedToken = storedLayerTokens.remove(layerToken.getKey());
+            if (layerToken.getValue().equals(storedToken)) continue;
+
+            final ContentValues layerContentValues = new ContentValues();
+            layerContentValues.put(DatabaseHelper.KEY_JWT, layerToken.getValue());
+            // Stored layers are updated in place rather than replaced, which would delete and re-insert their row.
+            final int updatedLayers = storedToken == null ? 0 : db.update(DatabaseHelper.TABLE_LAYERS, layerContentValues,
+                DatabaseHelper.KEY_DOCUMENT_ID + " = ? AND " + DatabaseHelper.KEY_LAYER_NAME + " = ?",
+                new String[] {document.documentId, layerToken.getKey()});
+            if (updatedLayers == 0) {
                 layerContentValues.put(DatabaseHelper.KEY_DOCUMENT_ID, document.documentId);
-                layerContentValues.put(DatabaseHelper.KEY_LAYER_NAME, layer.layerName);
-                layerContentValues.put(DatabaseHelper.KEY_JWT, layer.jwt);
-                db.insertWithOnConflict(DatabaseHelper.TABLE_LAYERS, null, layerContentValues, SQLiteDatabase.CONFLICT_REPLACE);
+                layerContentValues.put(DatabaseHelper.KEY_LAYER_NAME, layerToken.getKey());
+                db.insertWithOnConflict(DatabaseHelper.TABLE_LAYERS, null, layerContentValues, SQLiteDatabase.CONFLICT_IGNORE);
             }
+            changed = true;
+        }
+        // Stored layers left over were removed from the document.
+        for (String layerName : storedLayerTokens.keySet()) {
+            db.delete(DatabaseHelper.TABLE_LAYERS,
+                DatabaseHelper.KEY_DOCUMENT_ID + " = ? AND " + DatabaseHelper.KEY_LAYER_NAME + " = ?",
+                new String[] {document.documentId, layerName});
+            changed = true;
         }
+        return changed;
     }
 
     /**
-     * Replaces documents in the database.
+     * Returns authentication tokens of document layers keyed by layer name, as stored in the database.
      */
-    public void replaceDocuments(@NonNull List<WebExampleDocumentDescriptor> documents) {
-        final SQLiteDatabase db = databaseHelper.getWritableDatabase();
-        db.beginTransaction();
-        try {
-            db.delete(DatabaseHelper.TABLE_DOCUMENTS, null, null);
+    @NonNull
+    private static Map<String, String> getLayerTokens(@NonNull WebExampleDocumentDescriptor document) {
+        final Map<String, String> layerTokens = new HashMap<>();
+        for (WebExampleDocumentLayerDescriptor layer : document.layers) {
+            layerTokens.put(layer.layerName == null ? "" : layer.layerName, layer.jwt);
+        }
+        return layerTokens;
+    }
+
+    /**
+     * Applies changes of the document list to the database. Only added, changed and removed documents are touched. The
+     * write is queued on subscription and applied in the background.
+     * @return Completable completing once the write was committed. Fails with the error that rolled back the write, or
+     * with {@link DocumentWriteSupersededException} if a later write replaced all documents before this one was applied.
+     * Completion is signalled on the writer thread, before any later write is applied.
+     */
+    @NonNull
+    public Completable applyDocumentChanges(@NonNull final WebExampleDocumentChanges changes) {
+        return enqueueWrite(false, db -> {
+            for (String documentId : changes.removedDocumentIds) {
+                removeDocumentInternal(db, documentId);
+            }
+            // Layers of changed documents might have been removed, so their layers are replaced as a whole.
+            for (WebExampleDocumentDescriptor document : changes.changedDocuments) {
+                removeDocumentInternal(db, document.documentId);
+            }
+            addDocumentsInternal(db, changes.addedDocuments);
+            addDocumentsInternal(db, changes.changedDocuments);
+            return !changes.isEmpty();
+        }, () -> {
+            final List<String> removedDocumentIds = new ArrayList<>(changes.removedDocumentIds);
+            final List<WebExampleDocumentDescriptor> addedDocuments = new ArrayList<>(changes.addedDocuments);
+            for (WebExampleDocumentDescriptor document : changes.changedDocuments) {
+                removedDocumentIds.add(document.documentId);
+            }
+            addedDocuments.addAll(changes.changedDocuments);
+            databaseHelper.getDescriptorCache().onDocumentsWritten(removedDocumentIds, addedDocuments);
+        });
+    }
+
+    private void removeDocumentInternal(@NonNull SQLiteDatabase db, @NonNull String documentId) {
+        // Layers are removed by the foreign key.
+        db.delete(DatabaseHelper.TABLE_DOCUMENTS, DatabaseHelper.KEY_DOCUMENT_ID + " = ?", new String[] {documentId});
+    }
+
+    /**
+     * Removes all documents from the database. The write is queued on subscription and supersedes all writes that are
+     * still pending.
+     * @return Completable completing once the write was committed, see {@link #applyDocumentChanges(WebExampleDocumentChanges)}.
+     * Completion is signalled on the writer thread, before any later write is applied.
+     */
+    @NonNull
+    public Completable removeAllDocuments() {
+        return enqueueWrite(true, db -> {
+            // Layers go first so that the foreign key does not have to cascade row by row.
             db.delete(DatabaseHelper.TABLE_LAYERS, null, null);
-            addDocumentsInternal(db, documents);
-            db.setTransactionSuccessful();
+            return db.delete(DatabaseHelper.TABLE_DOCUMENTS, null, null) > 0;
+        }, databaseHelper.getDescriptorCache()::onAllDocumentsRemoved);
+    }
+
+    /**
+     * Waits for all writes queued so far.
+     * @return Completable completing once all previously queued writes were committed or rolled back.
+     */
+    @NonNull
+    public Completable flush() {
+        return enqueueWrite(false, db -> false, null)
+            // Superseded writes are finished together with the write superseding them, so there is nothing left to wait for.
+            .onErrorComplete(throwable -> throwable instanceof DocumentWriteSupersededException);
+    }
+
+    /**
+     * Database write applied by {@link #enqueueWrite(boolean, WriteAction, Runnable)}.
+     */
+    private interface WriteAction {
+        /**
+         * @return {@code true} if any rows were changed.
+         */
+        boolean apply(@NonNull SQLiteDatabase db) throws Exception;
+    }
+
+    /**
+     * Queues write for the single writer of the database once the returned Completable is subscribed.
+     * @param onCommitted Called on the writer thread after the write was committed, before the returned Completable
+     *                    completes. Called even if the Completable was disposed in the meantime.
+     */
+    @NonNull
+    private Completable enqueueWrite(boolean supersedesPendingWrites,
+                                     @NonNull final WriteAction action,
+                                     @Nullable final Runnable onCommitted) {
+        return Completable.create(emitter -> databaseHelper.getWriteQueue().enqueue(new DocumentWriteQueue.Write() {
+            @Override
+            public boolean apply(@NonNull SQLiteDatabase db) throws Exception {
+                return action.apply(db);
+            }
+
+            @Override
+            public void onFinished(@Nullable Throwable error, boolean applied) {
+                if (error != null) {
+                    emitter.tryOnError(error);
+                } else if (!applied) {
+                    emitter.tryOnError(new DocumentWriteSupersededException());
+                } else {
+                    if (onCommitted != null) {
+                        onCommitted.run();
+                    }
+                    emitter.onComplete();
+                }
+            }
+        }, supersedesPendingWrites));
+    }
+
+    /**
+     * Returns list of documents stored in the database. Documents and layers are loaded with one query each and merged in
+     * memory. Documents are returned in the order in which they were inserted. Document lists that are not too large are
+     * cached and kept up to date by writes, so repeated calls don't query the database.
+     * @return Unmodifiable list of documents.
+     */
+    @NonNull
+    public List<WebExampleDocumentDescriptor> getDocuments() {
+        final DocumentDescriptorCache cache = databaseHelper.getDescriptorCache();
+        final List<WebExampleDocumentDescriptor> cachedDocuments = cache.getAllDocuments();
+        if (cachedDocuments != null) return cachedDocuments;
+
+        try {
+            final long cacheGeneration = cache.getGeneration();
+            final List<WebExampleDocumentDescriptor> documents = getDocumentsInternal(databaseHelper.getReadableDatabase());
+            cache.putAllDocuments(cacheGeneration, documents);
+            return Collections.unmodifiableList(documents);
         } catch (Exception e) {
-            Log.e(LOG_TAG, "Error replacing documents.", e);
-        } finally {
-            db.endTransaction();
-            db.close();
+            Log.e(LOG_TAG, "Error retrieving all documents from the database.", e);
+            return Collections.emptyList();
         }
     }
 
     /**
-     * Removes all documents from the database.
+     * Returns document with given id, or {@code null} if it is not stored. Recently read and written documents are
+     * returned from cache.
      */
-    public void removeAllDocuments() {
-        final SQLiteDatabase db = databaseHelper.getWritableDatabase();
-        db.beginTransaction();
+    @Nullable
+    public WebExampleDocumentDescriptor getDocument(@NonNull String documentId) {
+        final WebExampleDocumentDescriptor cachedDocument = databaseHelper.getDescriptorCache().getDocument(documentId);
+        if (cachedDocument != null) return cachedDocument;
+
+        final List<WebExampleDocumentDescriptor> documents = getDocumentsPage(
+            DatabaseHelper.KEY_DOCUMENT_ID + " = ?", new String[] {documentId}, "1").documents;
+        return documents.isEmpty() ? null : documents.get(0);
+    }
+
+    /**
+     * Returns number of documents stored in the database.
+     */
+    public int getDocumentCount() {
         try {
-            db.delete(DatabaseHelper.TABLE_DOCUMENTS, null, null);
-            db.delete(DatabaseHelper.TABLE_LAYERS, null, null);
-            db.setTransactionSuccessful();
+            return (int) DatabaseUtils.queryNumEntries(databaseHelper.getReadableDatabase(), DatabaseHelper.TABLE_DOCUMENTS);
         } catch (Exception e) {
-            Log.e(LOG_TAG, "Error deleting all documents.", e);
-        } finally {
-            db.endTransaction();
-            db.close();
+            Log.e(LOG_TAG, "Error counting documents in the database.", e);
+            return 0;
         }
     }
 
     /**
-     * Returns list of documents stored in the database.
+     * Returns page of documents in the order in which they were stored, starting after given position. Pages are looked
+     * up through the rowid, so reading a page costs the same no matter how far into the document list it is.
+     * @param afterPosition {@link DocumentPage#endPosition} of the previous page, or {@link DocumentPage#START_POSITION}
+     *                      for the first page.
+     * @param limit Maximal number of documents on the page.
      */
     @NonNull
-    public List<WebExampleDocumentDescriptor> getDocuments() {
-        final String SELECT_ALL_QUERY = "SELECT * FROM " + DatabaseHelper.TABLE_DOCUMENTS;
+    public DocumentPage getDocumentsAfter(long afterPosition, int limit) {
+        return getDocumentsPage("rowid > ?", new String[] {String.valueOf(afterPosition)}, String.valueOf(limit));
+    }
+
+    /**
+     * Returns page of documents in the order in which they were stored, starting at given index. Skipped documents are
+     * still scanned, so prefer {@link #getDocumentsAfter(long, int)} whenever the previous page is known.
+     * @param offset Index of the first document on the page.
+     * @param limit Maximal number of documents on the page.
+     */
+    @NonNull
+    public DocumentPage getDocumentsAt(int offset, int limit) {
+        return getDocumentsPage(null, null, offset + ", " + limit);
+    }
+
+    /**
+     * Reads page of documents together with their layers in a single query, so that documents and layers are consistent
+     * even while writes are committed.
+     */
+    @NonNull
+    private DocumentPage getDocumentsPage(@Nullable String selection,
+                                          @Nullable String[] selectionArgs,
+                                          @NonNull String limit) {
+        final String SELECT_PAGE_QUERY = "SELECT d.rowid, d." + DatabaseHelper.KEY_DOCUMENT_ID + ", d." + DatabaseHelper.KEY_DOCUMENT_TITLE +
+            ", l." + DatabaseHelper.KEY_LAYER_NAME + ", l." + DatabaseHelper.KEY_JWT +
+            " FROM (SELECT rowid, " + DatabaseHelper.KEY_DOCUMENT_ID + ", " + DatabaseHelper.KEY_DOCUMENT_TITLE + " FROM " + DatabaseHelper.TABLE_DOCUMENTS +
+            (selection != null ? " WHERE " + selection : "") + " ORDER BY rowid LIMIT " + limit + ") d" +
+            " LEFT JOIN " + DatabaseHelper.TABLE_LAYERS + " l ON l." + DatabaseHelper.KEY_DOCUMENT_ID + " = d." + DatabaseHelper.KEY_DOCUMENT_ID +
+            " ORDER BY d.rowid, l." + DatabaseHelper.KEY_LAYER_NAME;
 
         final List<WebExampleDocumentDescriptor> documents = new ArrayList<>();
-        final SQLiteDatabase db = databaseHelper.getReadableDatabase();
-        final Cursor cursor = db.rawQuery(SELECT_ALL_QUERY, null);
+        long endPosition = DocumentPage.START_POSITION;
+        final long cacheGeneration = databaseHelper.getDescriptorCache().getGeneration();
+        Cursor cursor = null;
         try {
-            if (cursor.moveToFirst()) {
-                do {
-                    String documentId = cursor.getString(cursor.getColumnIndex(DatabaseHelper.KEY_DOCUMENT_ID));
-                    String documentTitle = cursor.getString(cursor.getColumnIndex(DatabaseHelper.KEY_DOCUMENT_TITLE));
-                    List<WebExampleDocumentLayerDescriptor> layers = getLayers(documentId);
-                    documents.add(new WebExampleDocumentDescriptor(documentId, documentTitle, layers));
-                } while (cursor.moveToNext());
+            // Opened inside of the try block, since the database may be closed by a concurrent deletion at any time.
+            final SQLiteDatabase db = databaseHelper.getReadableDatabase();
+            cursor = db.rawQuery(SELECT_PAGE_QUERY, selectionArgs);
+            // Every row holds one layer, layers of a document are on consecutive rows.
+            String documentId = null;
+            String title = null;
+            List<WebExampleDocumentLayerDescriptor> layers = null;
+            while (cursor.moveToNext()) {
+                final String rowDocumentId = cursor.getString(1);
+                if (!rowDocumentId.equals(documentId)) {
+                    if (documentId != null) {
+                        documents.add(new WebExampleDocumentDescriptor(documentId, title, layers));
+                    }
+                    endPosition = cursor.getLong(0);
+                    documentId = rowDocumentId;
+                    title = cursor.getString(2);
+                    layers = new ArrayList<>(1);
+                }
+                if (!cursor.isNull(4)) {
+                    layers.add(new WebExampleDocumentLayerDescriptor(documentId, cursor.getString(3), cursor.getString(4)));
+                }
             }
+            if (documentId != null) {
+                documents.add(new WebExampleDocumentDescriptor(documentId, title, layers));
+            }
+            databaseHelper.getDescriptorCache().putDocuments(cacheGeneration, documents);
         } catch (Exception e) {
-            Log.e(LOG_TAG, "Error retrieving all documents from the database.", e);
+            Log.e(LOG_TAG, "Error retrieving page of documents from the database.", e);
+            documents.clear();
+            endPosition = DocumentPage.START_POSITION;
         } finally {
             if (cursor != null && !cursor.isClosed()) {
                 cursor.close();
             }
-            db.close();
         }
-        return documents;
+        return new DocumentPage(documents, endPosition);
     }
 
+    /**
+     * Searches document titles for all words of the query. Words also match longer words starting with them, so results
+     * can be shown while typing. Titles starting with the query come first, followed by shorter titles.
+     * @param query Text entered by the user.
+     * @param limit Maximal number of returned documents.
+     * @return Matching documents, empty if the query contains no words.
+     */
     @NonNull
-    private List<WebExampleDocumentLayerDescriptor> getLayers(@NonNull String documentId) {
-        final List<WebExampleDocumentLayerDescriptor> layers = new ArrayList<>();
-        final SQLiteDatabase db = databaseHelper.getReadableDatabase();
-        final Cursor cursor = db.query(
-            DatabaseHelper.TABLE_LAYERS,
-            null,
-            DatabaseHelper.KEY_DOCUMENT_ID + " = ?",
-            new String[] {documentId},
-            null,
-            null,
-            null);
+    public List<WebExampleDocumentDescriptor> searchDocuments(@NonNull String query, int limit) {
+        final List<WebExampleDocumentDescriptor> documents = new ArrayList<>();
+        final String matchExpression = createMatchExpression(query);
+        if (matchExpression == null) return documents;
+
+        final String SEARCH_QUERY = "SELECT d." + DatabaseHelper.KEY_DOCUMENT_ID + ", d." + DatabaseHelper.KEY_DOCUMENT_TITLE +
+            " FROM " + DatabaseHelper.TABLE_DOCUMENTS_SEARCH + " s JOIN " + DatabaseHelper.TABLE_DOCUMENTS + " d ON d.rowid = s.docid" +
+            " WHERE " + DatabaseHelper.TABLE_DOCUMENTS_SEARCH + " MATCH ?" +
+            " ORDER BY d." + DatabaseHelper.KEY_DOCUMENT_TITLE + " LIKE ? ESCAPE '\\' DESC," +
+            " length(d." + DatabaseHelper.KEY_DOCUMENT_TITLE + "), d." + DatabaseHelper.KEY_DOCUMENT_TITLE +
+            " LIMIT " + limit;
+        final String titlePrefixPattern = query.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+
+        Cursor cursor = null;
         try {
-            if (cursor.moveToFirst()) {
-                do {
-                    String authenticationToken = cursor.getString(cursor.getColumnIndex(DatabaseHelper.KEY_JWT));
-                    String layerName = cursor.getString(cursor.getColumnIndex(DatabaseHelper.KEY_LAYER_NAME));
-                    layers.add(new WebExampleDocumentLayerDescriptor(documentId, layerName, authenticationToken));
-                } while (cursor.moveToNext());
+            final SQLiteDatabase db = databaseHelper.getReadableDatabase();
+            final Map<String, String> titles = new LinkedHashMap<>();
+            cursor = db.rawQuery(SEARCH_QUERY, new String[] {matchExpression, titlePrefixPattern});
+            while (cursor.moveToNext()) {
+                titles.put(cursor.getString(0), cursor.getString(1));
+            }
+            cursor.close();
+            if (titles.isEmpty()) return documents;
+
+            // Matching documents are spread over the whole table, so their layers are looked up one key at a time.
+            final StringBuilder selection = new StringBuilder(DatabaseHelper.KEY_DOCUMENT_ID).append(" IN (");
+            for (int i = 0; i < titles.size(); i++) {
+                selection.append(i == 0 ? "?" : ", ?");
             }
+            selection.append(')');
+            final Map<String, List<WebExampleDocumentLayerDescriptor>> layers = getLayersInternal(db,
+                selection.toString(), titles.keySet().toArray(new String[0]));
+            addDocumentDescriptors(documents, titles, layers);
         } catch (Exception e) {
-            Log.e(LOG_TAG, "Error retrieving document layers from the database.", e);
+            Log.e(LOG_TAG, "Error searching documents in the database.", e);
+            documents.clear();
         } finally {
             if (cursor != null && !cursor.isClosed()) {
                 cursor.close();
             }
-            db.close();
+        }
+        return documents;
+    }
+
+    /**
+     * Creates full-text match expression requiring prefixes of all words of the query.
+     * @return Match expression, or {@code null} if the query contains no words.
+     */
+    @Nullable
+    private static String createMatchExpression(@NonNull String query) {
+        final String[] words = query.split("[^\\p{L}\\p{N}]+");
+        final StringBuilder matchExpression = new StringBuilder();
+        for (String word : words) {
+            if (word.isEmpty()) continue;
+            if (matchExpression.length() > 0) {
+                matchExpression.append(' ');
+            }
+            // Words contain only letters and digits, so they can't be mistaken for query syntax.
+            matchExpression.append(word).append('*');
+        }
+        return matchExpression.length() > 0 ? matchExpression.toString() : null;
+    }
+
+    /**
+     * Reads layers matching the selection, keyed by document id.
+     */
+    @NonNull
+    private static Map<String, List<WebExampleDocumentLayerDescriptor>> getLayersInternal(@NonNull SQLiteDatabase db,
+                                                                                         @NonNull String selection,
+                                                                                         @NonNull String[] selectionArgs) {
+        final Map<String, List<WebExampleDocumentLayerDescriptor>> layers = new HashMap<>();
+        try (Cursor cursor = db.query(DatabaseHelper.TABLE_LAYERS,
+            new String[] {DatabaseHelper.KEY_DOCUMENT_ID, DatabaseHelper.KEY_LAYER_NAME, DatabaseHelper.KEY_JWT},
+            selection, selectionArgs, null, null, DatabaseHelper.KEY_DOCUMENT_ID + ", " + DatabaseHelper.KEY_LAYER_NAME)) {
+            while (cursor.moveToNext()) {
+                final String documentId = cursor.getString(0);
+                List<WebExampleDocumentLayerDescriptor> documentLayers = layers.get(documentId);
+                if (documentLayers == null) {
+                    documentLayers = new ArrayList<>(1);
+                    layers.put(documentId, documentLayers);
+                }
+                documentLayers.add(new WebExampleDocumentLayerDescriptor(documentId, cursor.getString(1), cursor.getString(2)));
+            }
         }
         return layers;
     }
 
     /**
-     * Deletes the whole database.
+     * Adds descriptors of documents with given titles to the list, in the order of titles.
+     */
+    private static void addDocumentDescriptors(@NonNull List<WebExampleDocumentDescriptor> documents,
+                                               @NonNull Map<String, String> titles,
+                                               @NonNull Map<String, List<WebExampleDocumentLayerDescriptor>> layers) {
+        for (Map.Entry<String, String> title : titles.entrySet()) {
+            List<WebExampleDocumentLayerDescriptor> documentLayers = layers.get(title.getKey());
+            if (documentLayers == null) {
+                documentLayers = new ArrayList<>();
+            }
+            documents.add(new WebExampleDocumentDescriptor(title.getKey(), title.getValue(), documentLayers));
+        }
+    }
+
+    @NonNull
+    private List<WebExampleDocumentDescriptor> getDocumentsInternal(@NonNull SQLiteDatabase db) {
+        final String SELECT_ALL_DOCUMENTS_QUERY = "SELECT " + DatabaseHelper.KEY_DOCUMENT_ID + ", " + DatabaseHelper.KEY_DOCUMENT_TITLE +
+            " FROM " + DatabaseHelper.TABLE_DOCUMENTS + " ORDER BY rowid";
+        final String SELECT_ALL_LAYERS_QUERY = "SELECT " + DatabaseHelper.KEY_DOCUMENT_ID + ", " + DatabaseHelper.KEY_LAYER_NAME + ", " + DatabaseHelper.KEY_JWT +
+            " FROM " + DatabaseHelper.TABLE_LAYERS + " ORDER BY " + DatabaseHelper.KEY_DOCUMENT_ID + ", " + DatabaseHelper.KEY_LAYER_NAME;
+
+        final List<WebExampleDocumentDescriptor> documents = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            // Layers of every document, keyed by document id. Layers are read in primary key order, so the default layer
+            // (stored with empty name) always comes first, even after its token was replaced.
+            final Map<String, List<WebExampleDocumentLayerDescriptor>> layers = new HashMap<>();
+            cursor = db.rawQuery(SELECT_ALL_LAYERS_QUERY, null);
+            while (cursor.moveToNext()) {
+                final String documentId = cursor.getString(0);
+                List<WebExampleDocumentLayerDescriptor> documentLayers = layers.get(documentId);
+                if (documentLayers == null) {
+                    documentLayers = new ArrayList<>(1);
+                    layers.put(documentId, documentLayers);
+                }
+                documentLayers.add(new WebExampleDocumentLayerDescriptor(documentId, cursor.getString(1), cursor.getString(2)));
+            }
+            cursor.close();
+
+            cursor = db.rawQuery(SELECT_ALL_DOCUMENTS_QUERY, null);
+            while (cursor.moveToNext()) {
+                final String documentId = cursor.getString(0);
+                List<WebExampleDocumentLayerDescriptor> documentLayers = layers.get(documentId);
+                if (documentLayers == null) {
+                    documentLayers = new ArrayList<>();
+                }
+                documents.add(new WebExampleDocumentDescriptor(documentId, cursor.getString(1), documentLayers));
+            }
+        } finally {
+            if (cursor != null && !cursor.isClosed()) {
+                cursor.close();
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Deletes the whole database. The deletion is queued on subscription and supersedes all writes that are still pending.
+     * This and all other instances of the database stay usable and see an empty database afterwards.
+     * @return Completable completing once the database was deleted.
      */
-    public void deleteDatabase(@NonNull Context context) {
-        databaseHelper.deleteDatabase(context);
+    @NonNull
+    public Completable deleteDatabase() {
+        return Completable.create(emitter -> databaseHelper.getWriteQueue().enqueueExclusive(new DocumentWriteQueue.Write() {
+            @Override
+            public boolean apply(@NonNull SQLiteDatabase db) {
+                databaseHelper.deleteDatabase();
+                return true;
+            }
+
+            @Override
+            public void onFinished(@Nullable Throwable error, boolean applied) {
+                // Deletion superseded by another deletion is done once that one is.
+                if (error != null) {
+                    emitter.tryOnError(error);
+                } else {
+                    emitter.onComplete();
+                }
+            }
+        }));
     }
 }
@@ -11,6 +11,7 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import okhttp3.HttpUrl;
 
 /**
@@ -24,6 +25,8 @@ public class InstantConnectionPreferences {
     private static final String PREF_SERVER_URL = "instant_example.server_url";
     private static final String PREF_USERNAME = "instant_example.username";
     private static final String PREF_LOGGED_IN = "instant_example.logged_in";
+    private static final String PREF_DOCUMENTS_SYNC_TOKEN = "instant_example.documents_sync_token";
+    private static final String PREF_DOCUMENTS_COMPLETE = "instant_example.documents_complete";
 
     /**
      * Returns instant server url for example server URL.
@@ -82,6 +85,52 @@ public class InstantConnectionPreferences {
         editor.apply();
     }
 
+    /**
+     * Returns token for retrieving changes of the document list stored in the database, or {@code null} if there is none.
+     */
+    @Nullable
+    public static String getDocumentsSyncToken(@NonNull Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getString(PREF_DOCUMENTS_SYNC_TOKEN, null);
+    }
+
+    /**
+     * Returns {@code true} if the document list stored in the database was completely written by the last refresh. Only
+     * then can the stored documents be kept when the server reports that the document list did not change.
+     */
+    public static boolean isDocumentListComplete(@NonNull Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getBoolean(PREF_DOCUMENTS_COMPLETE, false);
+    }
+
+    /**
+     * Marks the document list stored in the database as complete, once a refresh committed all of its documents.
+     * @param syncToken Token for retrieving later changes of the document list, or {@code null} if there is none.
+     */
+    public static void setDocumentListComplete(@NonNull Context context, @Nullable String syncToken) {
+        SharedPreferences sharedPref = PreferenceManager.getDefaultSharedPreferences(context);
+
+        SharedPreferences.Editor editor = sharedPref.edit();
+        editor.putBoolean(PREF_DOCUMENTS_COMPLETE, true);
+        if (syncToken != null) {
+            editor.putString(PREF_DOCUMENTS_SYNC_TOKEN, syncToken);
+        } else {
+            editor.remove(PREF_DOCUMENTS_SYNC_TOKEN);
+        }
+        editor.apply();
+    }
+
+    /**
+     * Marks the document list stored in the database as incomplete and removes its sync token. Must be called before a
+     * refresh writes the first part of the document list, or when documents are removed.
+     */
+    public static void clearDocumentListComplete(@NonNull Context context) {
+        SharedPreferences sharedPref = PreferenceManager.getDefaultSharedPreferences(context);
+
+        SharedPreferences.Editor editor = sharedPref.edit();
+        editor.remove(PREF_DOCUMENTS_COMPLETE);
+        editor.remove(PREF_DOCUMENTS_SYNC_TOKEN);
+        editor.apply();
+    }
+
     /**
      * Clears connection preferences.
      */
@@ -92,6 +141,8 @@ public class InstantConnectionPreferences {
         editor.remove(PREF_SERVER_URL);
         editor.remove(PREF_USERNAME);
         editor.remove(PREF_LOGGED_IN);
+        editor.remove(PREF_DOCUMENTS_SYNC_TOKEN);
+        editor.remove(PREF_DOCUMENTS_COMPLETE);
         editor.apply();
     }
 }
@@ -11,6 +11,7 @@ import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -23,17 +24,23 @@ import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.core.graphics.drawable.DrawableCompat;
 
+import com.pspdfkit.document.PdfDocument;
 import com.pspdfkit.example.instant.R;
 import com.pspdfkit.example.instant.api.WebExampleClient;
 import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
 import com.pspdfkit.example.instant.api.WebExampleDocumentLayerDescriptor;
+import com.pspdfkit.example.instant.db.WebExampleDocumentsDatabase;
 import com.pspdfkit.example.instant.preferences.InstantConnectionPreferences;
 import com.pspdfkit.instant.document.InstantPdfDocument;
 import com.pspdfkit.instant.exceptions.InstantErrorCode;
 import com.pspdfkit.instant.exceptions.InstantException;
 import com.pspdfkit.instant.ui.InstantPdfActivity;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Maybe;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.observers.DisposableCompletableObserver;
 import io.reactivex.schedulers.Schedulers;
 
@@ -42,16 +49,25 @@ import io.reactivex.schedulers.Schedulers;
  */
 public class InstantExampleActivity extends InstantPdfActivity {
 
-    public static final String PARAM_DOCUMENT_DESCRIPTOR = "InstantExampleActivity.DocumentDescriptor";
+    /** Id of the opened document. Its descriptor is loaded from the documents database. */
+    public static final String PARAM_DOCUMENT_ID = "InstantExampleActivity.DocumentId";
+
+    private static final String LOG_TAG = "InstantExampleActivity";
 
     private WebExampleClient webExampleClient;
     private String webExampleServerUrl;
-    private WebExampleDocumentDescriptor documentDescriptor;
+    /** Descriptor of the opened document, or {@code null} while it is being loaded from the database. */
+    @Nullable private WebExampleDocumentDescriptor documentDescriptor;
+    @Nullable private Disposable documentDescriptorDisposable;
 
     /** True when annotation sync or authentication previously failed with an error. */
     private boolean isError;
 
-    private boolean isAuthenticating = false;
+    /** True while re-authentication after a failed sync is in progress. */
+    @NonNull private final AtomicBoolean isAuthenticating = new AtomicBoolean();
+
+    /** Refreshes authentication token of the loaded document before it expires. */
+    @Nullable private Disposable jwtRefreshDisposable;
 
     @ColorInt private int mainToolbarIconsColor;
 
@@ -61,8 +77,8 @@ public class InstantExampleActivity extends InstantPdfActivity {
         getPdfFragment().addInstantDocumentListener(this);
 
         webExampleServerUrl = InstantConnectionPreferences.getInstantServerUrl(this);
-        webExampleClient = new WebExampleClient(InstantConnectionPreferences.getWebExampleServerUrl(this), InstantConnectionPreferences.getUserName(this));
-        documentDescriptor = getIntent().getParcelableExtra(PARAM_DOCUMENT_DESCRIPTOR);
+        webExampleClient = WebExampleClient.getInstance(this, InstantConnectionPreferences.getWebExampleServerUrl(this), InstantConnectionPreferences.getUserName(this));
+        loadDocumentDescriptor(getIntent().getStringExtra(PARAM_DOCUMENT_ID));
 
         final TypedArray a = getTheme().obtainStyledAttributes(
             null,
@@ -74,6 +90,66 @@ public class InstantExampleActivity extends InstantPdfActivity {
         a.recycle();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        stopJwtRefresh();
+        if (documentDescriptorDisposable != null) {
+            documentDescriptorDisposable.dispose();
+            documentDescriptorDisposable = null;
+        }
+    }
+
+    /**
+     * Loads descriptor of the opened document from the database. Recently listed documents are served from the cache of
+     * the database, so this does not need to wait for a query in most cases.
+     */
+    private void loadDocumentDescriptor(@Nullable final String documentId) {
+        if (documentId == null) return;
+        final WebExampleDocumentsDatabase webExampleDatabase = new WebExampleDocumentsDatabase(this);
+        documentDescriptorDisposable = Maybe.fromCallable(() -> webExampleDatabase.getDocument(documentId))
+            .subscribeOn(Schedulers.io())
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(
+                descriptor -> {
+                    documentDescriptor = descriptor;
+                    // Layers menu and token refresh depend on the descriptor.
+                    invalidateOptionsMenu();
+                    if (getDocument() != null) {
+                        startJwtRefresh();
+                    }
+                },
+                throwable -> Log.e(LOG_TAG, "Could not load document from the database.", throwable));
+    }
+
+    @Override
+    public void onDocumentLoaded(@NonNull PdfDocument document) {
+        super.onDocumentLoaded(document);
+        startJwtRefresh();
+    }
+
+    private void startJwtRefresh() {
+        stopJwtRefresh();
+
+        // Only the default layer token can be retrieved again from the web example server.
+        final InstantPdfDocument instantDocument = getDocument();
+        if (documentDescriptor == null || instantDocument == null || !TextUtils.isEmpty(getCurrentLayerName())) return;
+
+        jwtRefreshDisposable = webExampleClient.getRefreshedJwts(documentDescriptor.documentId, documentDescriptor.getDefaultLayer().jwt)
+            .concatMapCompletable(instantDocument::reauthenticateWithJwtAsync)
+            .subscribe(
+                () -> {
+                },
+                throwable -> Log.e(LOG_TAG, "Could not refresh authentication token.", throwable));
+    }
+
+    private void stopJwtRefresh() {
+        if (jwtRefreshDisposable != null) {
+            jwtRefreshDisposable.dispose();
+            jwtRefreshDisposable = null;
+        }
+    }
+
     @Override
     public boolean onCreateOptionsMenu(@NonNull Menu menu) {
         super.onCreateOptionsMenu(menu);
@@ -176,14 +252,15 @@ public class InstantExampleActivity extends InstantPdfActivity {
 
             // Skip authentication if document is not loaded or when another authentication is in progress.
             final InstantPdfDocument document = getDocument();
-            if (document == null || isAuthenticating) return;
-            isAuthenticating = true;
+            if (document == null || !isAuthenticating.compareAndSet(false, true)) return;
 
             // We will now query web example server for a new authentication token and re-authenticate with Instant server.
+            // Cached token has just been rejected, so make sure a new one is retrieved.
+            webExampleClient.invalidateJwt(instantDocument.getInstantDocumentDescriptor().getDocumentId());
             webExampleClient.getJwt(instantDocument.getInstantDocumentDescriptor().getDocumentId())
                 .flatMapCompletable(document::reauthenticateWithJwtAsync)
                 .subscribeOn(Schedulers.io())
-                .doFinally(() -> isAuthenticating = false)
+                .doFinally(() -> isAuthenticating.set(false))
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new DisposableCompletableObserver() {
                     @Override
@@ -7,16 +7,21 @@
 
 package com.pspdfkit.example.instant.ui;
 
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AbsListView;
 import android.widget.GridView;
 import android.widget.ProgressBar;
+import android.widget.SearchView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -25,28 +30,37 @@ import androidx.fragment.app.Fragment;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.pspdfkit.configuration.activity.PdfActivityConfiguration;
+import com.pspdfkit.configuration.rendering.PageRenderConfiguration;
 import com.pspdfkit.document.PdfDocument;
 import com.pspdfkit.example.instant.R;
+import com.pspdfkit.example.instant.api.DocumentChangesUnavailableException;
+import com.pspdfkit.example.instant.api.DocumentListNotModifiedException;
 import com.pspdfkit.example.instant.api.WebExampleClient;
+import com.pspdfkit.example.instant.api.WebExampleDocumentChanges;
 import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
 import com.pspdfkit.example.instant.api.WebExampleDocumentLayerDescriptor;
+import com.pspdfkit.example.instant.db.DocumentWriteSupersededException;
 import com.pspdfkit.example.instant.db.WebExampleDocumentsDatabase;
 import com.pspdfkit.example.instant.preferences.InstantConnectionPreferences;
+import com.pspdfkit.example.instant.ui.documentgrid.BitmapPool;
 import com.pspdfkit.example.instant.ui.documentgrid.DocumentAdapter;
 import com.pspdfkit.instant.client.InstantClient;
 import com.pspdfkit.instant.document.InstantPdfDocument;
 import com.pspdfkit.instant.ui.InstantPdfActivityIntentBuilder;
 import com.pspdfkit.utils.Size;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Single;
-import io.reactivex.SingleSource;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.functions.Function;
+import io.reactivex.processors.BehaviorProcessor;
 import io.reactivex.schedulers.Schedulers;
 
 /**
@@ -58,6 +72,18 @@ public class InstantKioskGridFragment extends Fragment {
 
     private static final String TAG = "Kiosk";
 
+    /** Maximal time documents retrieved from the server are held back before being shown in the grid. */
+    private static final long DOCUMENT_BATCH_TIMESPAN_MS = 250;
+    /** Maximal number of documents shown in the grid at once while documents are retrieved from the server. */
+    private static final int DOCUMENT_BATCH_SIZE = 50;
+    /** Time the search waits for typing to pause before querying the database. */
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+    /** Maximal number of documents shown as search results. */
+    private static final int MAX_SEARCH_RESULTS = 200;
+
+    /** Emitted by the search instead of results while not searching, so that all documents are shown. */
+    private static final List<WebExampleDocumentDescriptor> NO_SEARCH_RESULTS = new ArrayList<>();
+
     @NonNull private CompositeDisposable disposables = new CompositeDisposable();
 
     private String serverUrl;
@@ -69,15 +95,19 @@ public class InstantKioskGridFragment extends Fragment {
     private WebExampleDocumentsDatabase webExampleDatabase;
 
     private DocumentAdapter documentAdapter;
+    /** Text entered into the search field, empty while not searching. */
+    @NonNull private final BehaviorProcessor<String> searchQueries = BehaviorProcessor.createDefault("");
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setRetainInstance(true);
+        setHasOptionsMenu(true);
 
         serverUrl = InstantConnectionPreferences.getInstantServerUrl(getContext());
         instantClient = InstantClient.create(getContext(), serverUrl);
-        webExampleClient = new WebExampleClient(
+        webExampleClient = WebExampleClient.getInstance(
+            getContext(),
             InstantConnectionPreferences.getWebExampleServerUrl(getContext()),
             InstantConnectionPreferences.getUserName(getContext())
         );
@@ -90,8 +120,10 @@ public class InstantKioskGridFragment extends Fragment {
         View root = inflater.inflate(R.layout.fragment_instant_kiosk_grid, container, false);
 
         final GridView documentGrid = root.findViewById(android.R.id.list);
-        documentAdapter = new DocumentAdapter(getContext(), this);
+        documentAdapter = new DocumentAdapter(getContext(), this, webExampleDatabase);
         documentGrid.setAdapter(documentAdapter);
+        // Items moved to the scrap heap are no longer shown, so their previews don't have to be rendered first.
+        documentGrid.setRecyclerListener(documentAdapter::onItemRecycled);
         documentGrid.setOnItemClickListener((parent, view, position, id) -> {
             final WebExampleDocumentDescriptor documentDescriptor = documentAdapter.getItem(position);
             if (documentDescriptor == null) return;
@@ -105,7 +137,8 @@ public class InstantKioskGridFragment extends Fragment {
                 .configuration(getConfiguration().build())
                 .build();
 
-            intent.putExtra(InstantExampleActivity.PARAM_DOCUMENT_DESCRIPTOR, documentDescriptor);
+            // The activity loads the descriptor from the database, so a recreated activity picks up tokens of later refreshes.
+            intent.putExtra(InstantExampleActivity.PARAM_DOCUMENT_ID, documentDescriptor.documentId);
 
             startActivity(intent);
 
@@ -116,16 +149,20 @@ public class InstantKioskGridFragment extends Fragment {
         progressBar = root.findViewById(android.R.id.progress);
 
         swipeRefreshLayout = root.findViewById(R.id.swipe_to_refresh);
-        swipeRefreshLayout.setOnRefreshListener(() -> loadInstantDocuments(documentAdapter, true));
+        swipeRefreshLayout.setOnRefreshListener(() -> loadInstantDocuments(true));
 
         // Disable swipe to refresh when document grid is scrolled.
         documentGrid.setOnScrollListener(new AbsListView.OnScrollListener() {
             @Override
             public void onScrollStateChanged(AbsListView view, int scrollState) {
+                documentAdapter.setScrollState(scrollState);
             }
 
             @Override
             public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                // Previews of visible documents are rendered first, followed by rows ahead in scroll direction.
+                documentAdapter.setVisibleRange(firstVisibleItem, visibleItemCount, documentGrid.getNumColumns());
+
                 boolean enable = true;
                 if (documentGrid.getChildCount() > 0) {
                     boolean firstItemVisible = documentGrid.getFirstVisiblePosition() == 0;
@@ -137,11 +174,86 @@ public class InstantKioskGridFragment extends Fragment {
         });
 
         // Load instant documents on background thread.
-        loadInstantDocuments(documentAdapter, false);
+        loadInstantDocuments(false);
 
         return root;
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+        // Show documents stored in the database. Every write to the database, wherever it comes from, shows up here.
+        // Only the document count is observed, the adapter reads the documents it shows page by page.
+        disposables.add(
+            webExampleDatabase.observeDocumentCount()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(documentCount -> {
+                    progressBar.setVisibility(View.GONE);
+                    documentAdapter.setDocumentCount(documentCount);
+                }, throwable -> Log.e(TAG, "Error while observing cached instant documents.", throwable)));
+
+        // Search results are shown instead of all documents while searching, and are searched again after every write.
+        disposables.add(
+            Flowable.combineLatest(
+                searchQueries.debounce(query -> query.trim().isEmpty()
+                    ? Flowable.<Long>empty()
+                    : Flowable.timer(SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS)),
+                webExampleDatabase.observeDocumentCount(),
+                (query, documentCount) -> query.trim())
+                // A newer query cancels the running search.
+                .switchMapMaybe(query -> query.isEmpty()
+                    ? Maybe.just(NO_SEARCH_RESULTS)
+                    : Maybe.fromCallable(() -> webExampleDatabase.searchDocuments(query, MAX_SEARCH_RESULTS)).subscribeOn(Schedulers.io()))
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(searchResults -> documentAdapter.setSearchResults(searchResults != NO_SEARCH_RESULTS ? searchResults : null),
+                    throwable -> Log.e(TAG, "Error while searching instant documents.", throwable)));
+    }
+
+    @Override
+    public void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
+        super.onCreateOptionsMenu(menu, inflater);
+
+        final SearchView searchView = new SearchView(getContext());
+        searchView.setQueryHint(getString(R.string.search_documents));
+        final MenuItem searchMenuItem = menu.add(0, R.id.search_button, 0, R.string.search_documents);
+        searchMenuItem.setIcon(android.R.drawable.ic_menu_search);
+        searchMenuItem.setShowAsAction(MenuItem.SHOW_AS_ACTION_IF_ROOM | MenuItem.SHOW_AS_ACTION_COLLAPSE_ACTION_VIEW);
+        searchMenuItem.setActionView(searchView);
+
+        // Keep showing the search of a recreated activity.
+        final String query = searchQueries.getValue();
+        if (query != null && !query.isEmpty()) {
+            searchMenuItem.expandActionView();
+            searchView.setQuery(query, false);
+        }
+
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String query) {
+                searchQueries.onNext(query);
+                return true;
+            }
+        });
+        searchMenuItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                searchQueries.onNext("");
+                return true;
+            }
+        });
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -154,47 +266,42 @@ public class InstantKioskGridFragment extends Fragment {
         super.onStop();
         disposables.clear();
         documentAdapter.cancelPreviewRendering();
+        documentAdapter.releaseDocuments();
     }
 
-    private void loadInstantDocuments(@NonNull final DocumentAdapter documentAdapter, final boolean showError) {
-        // Replace documents in document adapter.
+    private void loadInstantDocuments(final boolean showError) {
+        final Context context = getContext().getApplicationContext();
+
+        // Documents are written to the database, from where they reach the document adapter.
         disposables.add(
-            // First load cached documents from database.
-            Single.fromCallable(() -> webExampleDatabase.getDocuments())
-                .subscribeOn(Schedulers.computation())
-                .observeOn(AndroidSchedulers.mainThread())
-                .doOnEvent((documents, throwable) -> {
-                    if (throwable == null) {
-                        progressBar.setVisibility(View.GONE);
-                        documentAdapter.setDocuments(documents);
+            // Check whether documents are already cached. This reuses the latest document count observed by the grid.
+            webExampleDatabase.observeDocumentCount()
+                .firstOrError()
+                // Then try to update documents from web example server.
+                .flatMapCompletable(cachedDocumentCount -> {
+                    final String syncToken = InstantConnectionPreferences.getDocumentsSyncToken(context);
+                    if (syncToken == null || cachedDocumentCount == 0) {
+                        // An unchanged document list only means cached documents are up to date if the last refresh
+                        // wrote all of them, and was not interrupted after writing just some batches.
+                        return loadAllDocuments(context,
+                            cachedDocumentCount > 0 && InstantConnectionPreferences.isDocumentListComplete(context));
                     }
+                    // Retrieve only changes since the last refresh, falling back to the whole document list if that's not possible.
+                    return loadDocumentChanges(context, syncToken)
+                        .onErrorResumeNext(throwable -> throwable instanceof DocumentChangesUnavailableException
+                            ? loadAllDocuments(context, false)
+                            : Completable.error(throwable));
                 })
-                .ignoreElement()
-                // Then try to retrieve documents from web example server.
-                .andThen(webExampleClient.getDocumentsAsync())
-                .toList()
-                .flatMap((Function<List<WebExampleDocumentDescriptor>, SingleSource<List<WebExampleDocumentDescriptor>>>) newDocuments -> Single.fromCallable(() -> {
-                    // Release not existing documents from local storage.
-                    List<WebExampleDocumentDescriptor> oldDocuments = webExampleDatabase.getDocuments();
-                    Set<WebExampleDocumentDescriptor> documentsToRemove = new HashSet<>(oldDocuments);
-                    documentsToRemove.removeAll(newDocuments);
-                    for (WebExampleDocumentDescriptor documentDescriptor : documentsToRemove) {
-                        instantClient.removeLocalStorageForDocument(documentDescriptor.documentId);
-                    }
-
-                    // Replace documents cached in database with new set downloaded from web example server.
-                    webExampleDatabase.replaceDocuments(newDocuments);
-
-                    return newDocuments;
-                }))
-                .subscribeOn(Schedulers.computation())
+                // Documents were replaced by a later refresh or a log out, nothing went wrong.
+                .onErrorComplete(throwable -> throwable instanceof DocumentWriteSupersededException)
                 .observeOn(AndroidSchedulers.mainThread())
                 .doFinally(() -> {
                     // Hide progress indicators.
                     progressBar.setVisibility(View.GONE);
                     swipeRefreshLayout.setRefreshing(false);
                 })
-                .subscribe(documentAdapter::setDocuments, throwable -> {
+                .subscribe(() -> {
+                }, throwable -> {
                     Log.e(TAG, "Error while trying to list all instant documents.", throwable);
                     if (showError) {
                         Toast.makeText(getContext(), R.string.error_listing_documents, Toast.LENGTH_LONG).show();
@@ -202,19 +309,108 @@ public class InstantKioskGridFragment extends Fragment {
                 }));
     }
 
+    /**
+     * Retrieves the whole document list from web example server and replaces cached documents with it.
+     */
+    @NonNull
+    private Completable loadAllDocuments(@NonNull final Context context, final boolean onlyIfModified) {
+        // When documents were already cached and the document list did not change in the meantime, there is nothing to update.
+        return webExampleClient.getDocumentsAsync(onlyIfModified)
+            // Show documents in batches as soon as their tokens arrive instead of waiting for the slowest one.
+            .buffer(DOCUMENT_BATCH_TIMESPAN_MS, TimeUnit.MILLISECONDS, DOCUMENT_BATCH_SIZE)
+            .filter(documentsBatch -> !documentsBatch.isEmpty())
+            // Persist every batch as soon as it arrives, so the grid picks it up from the database and an interrupted
+            // refresh keeps the documents it already retrieved. Writes are queued, so retrieval is never held up by them,
+            // but a failed write fails the refresh.
+            // The stored document list stays incomplete until the refresh replaced all documents.
+            .doOnNext(documentsBatch -> InstantConnectionPreferences.clearDocumentListComplete(context))
+            .flatMapSingle(documentsBatch -> webExampleDatabase.addDocuments(documentsBatch)
+                // Changed documents are already written when all documents are replaced, so only batches report them.
+                .doOnSuccess(documentAdapter::removePreviewsFromCache)
+                .map(changedDocumentIds -> documentsBatch))
+            .collect(() -> new ArrayList<WebExampleDocumentDescriptor>(), List::addAll)
+            // Once all documents are known, replace documents cached in database with new set downloaded from web example server.
+            .flatMap(webExampleDatabase::replaceDocuments)
+            // Still on the writer, so the sync token is stored before any later write, like a log out, can clear it.
+            .doOnSuccess(changes -> {
+                invalidatePreviews(changes);
+                InstantConnectionPreferences.setDocumentListComplete(context, webExampleClient.getSyncToken());
+            })
+            .observeOn(Schedulers.io())
+            .doOnSuccess(changes -> {
+                // Release not existing documents from local storage.
+                for (String documentId : changes.removedDocumentIds) {
+                    instantClient.removeLocalStorageForDocument(documentId);
+                }
+            })
+            .ignoreElement()
+            .onErrorComplete(throwable -> throwable instanceof DocumentListNotModifiedException);
+    }
+
+    /**
+     * Retrieves changes of the document list since the last refresh and applies them to cached documents.
+     */
+    @NonNull
+    private Completable loadDocumentChanges(@NonNull final Context context, @NonNull final String syncToken) {
+        return webExampleClient.getDocumentChangesAsync(syncToken)
+            .observeOn(Schedulers.io())
+            .doOnSuccess(changes -> {
+                // Release removed documents from local storage.
+                for (String documentId : changes.removedDocumentIds) {
+                    instantClient.removeLocalStorageForDocument(documentId);
+                }
+            })
+            .flatMapCompletable(changes -> webExampleDatabase.applyDocumentChanges(changes)
+                .doOnComplete(() -> {
+                    invalidatePreviews(changes);
+                    InstantConnectionPreferences.setDocumentListComplete(context, changes.syncToken);
+                }));
+    }
+
+    /**
+     * Invalidates previews of documents that were changed or removed on the server. Like previews of documents changed by
+     * {@link WebExampleDocumentsDatabase#addDocuments(List)}, these are invalidated on the writer after the changes were
+     * committed, so the grid only reloads previews once it's notified about the write.
+     */
+    private void invalidatePreviews(@NonNull WebExampleDocumentChanges changes) {
+        final List<String> documentIds = new ArrayList<>(changes.removedDocumentIds);
+        for (WebExampleDocumentDescriptor document : changes.changedDocuments) {
+            documentIds.add(document.documentId);
+        }
+        documentAdapter.removePreviewsFromCache(documentIds);
+    }
+
     @NonNull
     protected PdfActivityConfiguration.Builder getConfiguration() {
         return InstantCatalogPreferencesFragment.getConfiguration(getContext());
     }
 
     @NonNull
-    public Single<Bitmap> renderDocumentPreview(@NonNull final WebExampleDocumentLayerDescriptor layerDescriptor, @NonNull final Size previewImageSize) {
+    public Single<Bitmap> renderDocumentPreview(@NonNull final WebExampleDocumentLayerDescriptor layerDescriptor,
+                                                @NonNull final Size previewImageSize,
+                                                @NonNull final BitmapPool bitmapPool) {
         return instantClient.getInstantDocumentDescriptorForJwt(layerDescriptor.jwt)
             .openDocumentAsync(layerDescriptor.jwt)
             .subscribeOn(Schedulers.io())
             .flatMap((Function<InstantPdfDocument, Single<Bitmap>>) document -> {
                 Size size = calculateBitmapSize(document, previewImageSize);
-                return document.renderPageToBitmapAsync(getContext(), 0, (int) size.width, (int) size.height);
+                final int width = (int) size.width;
+                final int height = (int) size.height;
+                // Render into a pooled bitmap if there is one, instead of allocating a new bitmap for every preview.
+                final PageRenderConfiguration.Builder configuration = new PageRenderConfiguration.Builder();
+                final Bitmap pooledBitmap = bitmapPool.get(width, height, Bitmap.Config.ARGB_8888);
+                if (pooledBitmap != null) {
+                    configuration.reuseBitmap(pooledBitmap);
+                }
+                final Single<Bitmap> render = document.renderPageToBitmapAsync(getContext(), 0, width, height, configuration.build());
+                if (pooledBitmap == null) return render;
+                // Pooled bitmap goes back to the pool if it was not rendered into. Cancelled renders might still be
+                // writing into it, so it is dropped in that case.
+                return render
+                    .doOnSuccess(bitmap -> {
+                        if (bitmap != pooledBitmap) bitmapPool.putUnused(pooledBitmap);
+                    })
+                    .doOnError(throwable -> bitmapPool.putUnused(pooledBitmap));
             });
     }
 
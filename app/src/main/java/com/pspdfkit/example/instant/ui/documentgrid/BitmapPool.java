@@ -0,0 +1,185 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.ui.documentgrid;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pool of preview bitmaps that are no longer used, so that rendering and decoding previews can reuse their memory
+ * instead of allocating new bitmaps.
+ *
+ * <p>Bitmaps are bucketed by allocation size and reconfigured to the requested dimensions when taken from the pool, so
+ * any pooled bitmap that is large enough can be reused. Users of a bitmap {@link #retain(Bitmap) retain} it and
+ * {@link #release(Bitmap) release} it when done. Bitmaps return to the pool once no user holds them anymore.
+ */
+public class BitmapPool {
+
+    /** Pooled bitmap may be at most this many times larger than requested, to avoid holding on to large bitmaps for small requests. */
+    private static final int MAX_SIZE_MULTIPLE = 2;
+
+    private final long maxPooledBytes;
+
+    /** Pooled bitmaps keyed by their allocation size in bytes. */
+    @NonNull private final TreeMap<Integer, Deque<Bitmap>> pooledBitmaps = new TreeMap<>();
+    /** Number of users of every bitmap in use that was created or handed out by the pool. */
+    @NonNull private final Map<Bitmap, Integer> referenceCounts = new IdentityHashMap<>();
+
+    private long pooledBytes;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * @param maxPooledBytes Maximal size of bitmaps held by the pool. Released bitmaps that don't fit are dropped.
+     */
+    public BitmapPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Takes bitmap with given dimensions from the pool. The returned bitmap has undefined content.
+     * @return Pooled bitmap, or {@code null} if there is no bitmap large enough.
+     */
+    @Nullable
+    public synchronized Bitmap get(int width, int height, @NonNull Bitmap.Config config) {
+        final int requiredBytes = width * height * getBytesPerPixel(config);
+        Map.Entry<Integer, Deque<Bitmap>> bucket = pooledBitmaps.ceilingEntry(requiredBytes);
+        while (bucket != null && bucket.getKey() <= requiredBytes * MAX_SIZE_MULTIPLE) {
+            final Bitmap bitmap = bucket.getValue().pollLast();
+            if (bucket.getValue().isEmpty()) {
+                pooledBitmaps.remove(bucket.getKey());
+            }
+            if (bitmap != null) {
+                pooledBytes -= bucket.getKey();
+                if (!bitmap.isRecycled()) {
+                    bitmap.reconfigure(width, height, config);
+                    hitCount++;
+                    return bitmap;
+                }
+            }
+            bucket = pooledBitmaps.ceilingEntry(requiredBytes);
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Registers a new user of the bitmap.
+     */
+    public synchronized void retain(@NonNull Bitmap bitmap) {
+        final Integer referenceCount = referenceCounts.get(bitmap);
+        referenceCounts.put(bitmap, referenceCount == null ? 1 : referenceCount + 1);
+    }
+
+    /**
+     * Unregisters user of the bitmap. Bitmap goes back to the pool once its last user released it.
+     */
+    public synchronized void release(@NonNull Bitmap bitmap) {
+        final Integer referenceCount = referenceCounts.get(bitmap);
+        if (referenceCount == null) return;
+        if (referenceCount > 1) {
+            referenceCounts.put(bitmap, referenceCount - 1);
+            return;
+        }
+        referenceCounts.remove(bitmap);
+        put(bitmap);
+    }
+
+    /**
+     * Puts bitmap taken from the pool with {@link #get(int, int, Bitmap.Config)} back, if it ended up not being used, for
+     * example because rendering into it failed. Bitmaps that are in use are left alone.
+     */
+    public synchronized void putUnused(@NonNull Bitmap bitmap) {
+        if (referenceCounts.containsKey(bitmap)) return;
+        put(bitmap);
+    }
+
+    private void put(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable()) return;
+
+        final int allocationBytes = bitmap.getAllocationByteCount();
+        if (allocationBytes > maxPooledBytes) return;
+        // Make room by dropping the largest pooled bitmaps first, since they are the least likely to fit a request.
+        while (pooledBytes + allocationBytes > maxPooledBytes && !pooledBitmaps.isEmpty()) {
+            final Map.Entry<Integer, Deque<Bitmap>> largestBucket = pooledBitmaps.lastEntry();
+            largestBucket.getValue().pollFirst();
+            pooledBytes -= largestBucket.getKey();
+            if (largestBucket.getValue().isEmpty()) {
+                pooledBitmaps.remove(largestBucket.getKey());
+            }
+        }
+
+        // Pooled bitmaps must not show stale previews if they are ever drawn by mistake.
+        bitmap.eraseColor(Color.TRANSPARENT);
+        Deque<Bitmap> bucket = pooledBitmaps.get(allocationBytes);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            pooledBitmaps.put(allocationBytes, bucket);
+        }
+        bucket.addLast(bitmap);
+        pooledBytes += allocationBytes;
+    }
+
+    /**
+     * Drops all pooled bitmaps. Bitmaps in use are not affected.
+     */
+    public synchronized void clear() {
+        pooledBitmaps.clear();
+        pooledBytes = 0;
+    }
+
+    /**
+     * Returns size of bitmaps currently held by the pool.
+     */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * Returns number of requests served from the pool.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns number of requests that could not be served from the pool.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns share of requests served from the pool, between {@code 0} and {@code 1}.
+     */
+    public synchronized float getHitRate() {
+        final long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 0 : (float) hitCount / requestCount;
+    }
+
+    private static int getBytesPerPixel(@NonNull Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+}
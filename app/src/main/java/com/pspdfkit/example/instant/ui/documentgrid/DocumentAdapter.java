@@ -13,7 +13,7 @@ import android.graphics.drawable.BitmapDrawable;
 import android.text.TextUtils;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -22,38 +22,70 @@ import androidx.collection.LruCache;
 import com.pspdfkit.example.instant.R;
 import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
 import com.pspdfkit.example.instant.api.WebExampleDocumentLayerDescriptor;
+import com.pspdfkit.example.instant.db.WebExampleDocumentsDatabase;
 import com.pspdfkit.example.instant.ui.InstantKioskGridFragment;
 import com.pspdfkit.utils.Size;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import io.reactivex.Maybe;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 
 /**
- * Adapter that shows list of web example documents in {@link InstantKioskGridFragment}.
+ * Adapter that shows list of web example documents in {@link InstantKioskGridFragment}. Documents are read from the
+ * database in pages around the visible part of the grid.
  */
-public class DocumentAdapter extends ArrayAdapter<WebExampleDocumentDescriptor> {
+public class DocumentAdapter extends BaseAdapter {
+
+    @NonNull private final Context context;
+    @NonNull private final WebExampleDocumentsDatabase webExampleDatabase;
+    @NonNull private final PagedDocumentList documents;
+    /** Documents matching the search shown instead of all stored documents, or {@code null} while not searching. */
+    @Nullable private List<WebExampleDocumentDescriptor> searchResults;
 
     @NonNull private final BitmapDrawable noPreviewDrawable;
+    /** Previews keyed by layer and document version, so previews of invalidated documents are never shown again. */
     @NonNull private final LruCache<String, Bitmap> previewImageCache;
     @NonNull private final Size previewImageSize;
+    @NonNull private final PreviewDiskCache previewDiskCache;
+    @NonNull private final BitmapPool bitmapPool = new BitmapPool(Runtime.getRuntime().maxMemory() / 16);
+    @NonNull private final PreviewRenderScheduler renderScheduler = new PreviewRenderScheduler();
+    @NonNull private final PreviewPrefetcher previewPrefetcher = new PreviewPrefetcher(this::prefetchPreview);
+    /** Preview loads that are still running, keyed by preview cache key. Shared by grid items and prefetching. */
+    @NonNull private final Map<String, Maybe<Bitmap>> previewLoads = new HashMap<>();
 
     @NonNull private final InstantKioskGridFragment kioskGridFragment;
 
     @NonNull private CompositeDisposable previewRenderDisposables = new CompositeDisposable();
 
-    public DocumentAdapter(@NonNull Context context, @NonNull InstantKioskGridFragment instantKioskGridFragment) {
-        super(context, -1);
-
+    public DocumentAdapter(@NonNull Context context,
+                           @NonNull InstantKioskGridFragment instantKioskGridFragment,
+                           @NonNull WebExampleDocumentsDatabase webExampleDatabase) {
+        this.context = context;
         this.kioskGridFragment = instantKioskGridFragment;
+        this.webExampleDatabase = webExampleDatabase;
+        this.documents = new PagedDocumentList(webExampleDatabase, this::notifyDataSetChanged);
 
         previewImageCache = new LruCache<String, Bitmap>((int) ((Runtime.getRuntime().maxMemory() / 1024) / 8)) {
             @Override
             protected int sizeOf(String key, Bitmap value) {
                 // The cache size will be measured in kilobytes rather than
                 // number of items.
-                return value.getByteCount() / 1024;
+                return value.getAllocationByteCount() / 1024;
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                // Previews dropped from the cache go back to the pool once they are no longer shown.
+                bitmapPool.release(oldValue);
             }
         };
 
@@ -63,14 +95,59 @@ public class DocumentAdapter extends ArrayAdapter<WebExampleDocumentDescriptor>
         );
 
         noPreviewDrawable = (BitmapDrawable) context.getResources().getDrawable(R.drawable.document);
+        previewDiskCache = PreviewDiskCache.getInstance(context);
+    }
+
+    /**
+     * Notifies the adapter that documents stored in the database changed.
+     * @param documentCount Number of stored documents.
+     */
+    public void setDocumentCount(int documentCount) {
+        // Positions of prefetched documents may have changed.
+        previewPrefetcher.cancel();
+        documents.invalidate(documentCount);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Shows documents matching a search instead of all stored documents.
+     * @param searchResults Matching documents, or {@code null} to show all stored documents again.
+     */
+    public void setSearchResults(@Nullable List<WebExampleDocumentDescriptor> searchResults) {
+        if (this.searchResults == null && searchResults == null) return;
+        // Positions of prefetched documents changed.
+        previewPrefetcher.cancel();
+        this.searchResults = searchResults;
+        notifyDataSetChanged();
     }
 
     /**
-     * Sets web example document descriptors to the adapter.
+     * Releases documents loaded by the adapter and stops loading more.
      */
-    public void setDocuments(List<WebExampleDocumentDescriptor> documents) {
-        clear();
-        addAll(documents);
+    public void releaseDocuments() {
+        documents.clear();
+    }
+
+    @Override
+    public int getCount() {
+        return searchResults != null ? searchResults.size() : documents.getCount();
+    }
+
+    /**
+     * Returns document at given position, or {@code null} if it is still being loaded.
+     */
+    @Nullable
+    @Override
+    public WebExampleDocumentDescriptor getItem(int position) {
+        if (searchResults != null) {
+            return position >= 0 && position < searchResults.size() ? searchResults.get(position) : null;
+        }
+        return documents.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
     }
 
     @NonNull
@@ -78,65 +155,283 @@ public class DocumentAdapter extends ArrayAdapter<WebExampleDocumentDescriptor>
     public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
         final DocumentViewHolder holder = DocumentViewHolder.get(convertView, parent);
         WebExampleDocumentDescriptor documentDescriptor = getItem(position);
-        final WebExampleDocumentLayerDescriptor layerDescriptor = documentDescriptor.getDefaultLayer();
 
         if (holder.previewRenderDisposable != null) {
             holder.previewRenderDisposable.dispose();
             previewRenderDisposables.delete(holder.previewRenderDisposable);
         }
+        if (holder.position != position) {
+            if (holder.position != PreviewRenderScheduler.NO_POSITION) {
+                renderScheduler.setItemBound(holder.position, false);
+            }
+            renderScheduler.setItemBound(position, true);
+            holder.position = position;
+        }
 
-        // We only want to render a new preview image if we don't already have one in the cache.
+        // Show placeholder until the document is loaded.
+        if (documentDescriptor == null || documentDescriptor.layers.isEmpty()) {
+            showPreview(holder, null);
+            holder.itemTitleView.setText(null);
+            return holder.view;
+        }
+        final WebExampleDocumentLayerDescriptor layerDescriptor = documentDescriptor.getDefaultLayer();
+
+        // We only want to render a new preview image if we don't already have one in the memory or disk cache.
         Bitmap cachedPreview = getPreviewFromCache(layerDescriptor);
-        holder.itemPreviewImageView.setImageBitmap(cachedPreview != null ? cachedPreview : noPreviewDrawable.getBitmap());
+        showPreview(holder, cachedPreview);
         if (cachedPreview == null) {
-            // Calculate the size of the rendered preview image.
-            holder.previewRenderDisposable = kioskGridFragment.renderDocumentPreview(layerDescriptor, previewImageSize)
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(bitmap -> {
-                    holder.itemPreviewImageView.setImageBitmap(bitmap);
-                    addPreviewToCache(layerDescriptor, bitmap);
-                });
+            holder.previewRenderDisposable = loadPreview(position, layerDescriptor)
+                .subscribe(bitmap -> showPreview(holder, bitmap));
             previewRenderDisposables.add(holder.previewRenderDisposable);
         }
 
         if (!TextUtils.isEmpty(documentDescriptor.title)) {
             holder.itemTitleView.setText(documentDescriptor.title);
         } else {
-            holder.itemTitleView.setText(getContext().getResources().getText(R.string.pspdf__activity_title_unnamed_document));
+            holder.itemTitleView.setText(context.getResources().getText(R.string.pspdf__activity_title_unnamed_document));
         }
 
         return holder.view;
     }
 
+    /**
+     * Informs adapter that the grid no longer shows the item view and moved it to its scrap heap. Pass to
+     * {@link android.widget.AbsListView#setRecyclerListener(android.widget.AbsListView.RecyclerListener)}.
+     */
+    public void onItemRecycled(@NonNull View view) {
+        final DocumentViewHolder holder = (DocumentViewHolder) view.getTag();
+        if (holder == null) return;
+        if (holder.previewRenderDisposable != null) {
+            holder.previewRenderDisposable.dispose();
+            previewRenderDisposables.delete(holder.previewRenderDisposable);
+            holder.previewRenderDisposable = null;
+        }
+        if (holder.position != PreviewRenderScheduler.NO_POSITION) {
+            renderScheduler.setItemBound(holder.position, false);
+            holder.position = PreviewRenderScheduler.NO_POSITION;
+        }
+    }
+
+    /**
+     * Loads preview from the disk cache or renders it, and adds it to the memory cache. Loads of the same preview are
+     * shared, so a grid item showing a prefetched document joins the running prefetch. The load is cancelled once it
+     * has no subscribers left. The document version is captured when the load starts, so that a preview of a document
+     * invalidated while loading is not cached.
+     *
+     * <p>The load holds its own reference on the loaded bitmap until the memory cache and all subscribers retained it,
+     * so the bitmap can't go back to the pool in the meantime, for example once it was written to disk.
+     * @param position Position of the grid item showing the preview, or {@link PreviewRenderScheduler#NO_POSITION} to
+     *                 load it in the background. A grid item joining a background load moves its render forward.
+     */
+    @NonNull
+    private Maybe<Bitmap> loadPreview(int position, @NonNull WebExampleDocumentLayerDescriptor layerDescriptor) {
+        final int version = previewDiskCache.getVersion(layerDescriptor.documentId);
+        final String cacheKey = getPreviewCacheKey(layerDescriptor, version);
+        Maybe<Bitmap> previewLoad = previewLoads.get(cacheKey);
+        if (previewLoad == null) {
+            final LoadReference loadReference = new LoadReference(bitmapPool);
+            // Decoded and rendered previews reuse memory of pooled bitmaps.
+            previewLoad = Maybe.fromCallable(() -> previewDiskCache.get(layerDescriptor, previewImageSize, version, bitmapPool))
+                .subscribeOn(Schedulers.io())
+                .doOnSuccess(loadReference::retain)
+                // Renders are queued by priority, since only a few of them run at once.
+                .switchIfEmpty(renderScheduler.schedule(cacheKey, position, kioskGridFragment.renderDocumentPreview(layerDescriptor, previewImageSize, bitmapPool)
+                    .doOnSuccess(bitmap -> {
+                        loadReference.retain(bitmap);
+                        // Keep the bitmap out of the pool until it has been written to disk.
+                        bitmapPool.retain(bitmap);
+                        previewDiskCache.put(layerDescriptor, previewImageSize, version, bitmap, () -> bitmapPool.release(bitmap));
+                    })))
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnSuccess(bitmap -> addPreviewToCache(layerDescriptor, version, bitmap))
+                // Runs once subscribers received the bitmap, or once the load was cancelled or failed.
+                .doFinally(() -> {
+                    loadReference.release();
+                    previewLoads.remove(cacheKey);
+                })
+                .toObservable()
+                .share()
+                .singleElement();
+            previewLoads.put(cacheKey, previewLoad);
+        } else if (position != PreviewRenderScheduler.NO_POSITION) {
+            renderScheduler.setPosition(cacheKey, position);
+        }
+        return previewLoad;
+    }
+
+    /**
+     * Prefetches preview of the document at given position into the memory cache.
+     * @return Disposable cancelling the prefetch, or {@code null} if there is nothing to prefetch.
+     */
+    @Nullable
+    private Disposable prefetchPreview(int position) {
+        final WebExampleDocumentDescriptor documentDescriptor = getItem(position);
+        if (documentDescriptor == null || documentDescriptor.layers.isEmpty()) return null;
+        final WebExampleDocumentLayerDescriptor layerDescriptor = documentDescriptor.getDefaultLayer();
+        if (getPreviewFromCache(layerDescriptor) != null) return null;
+
+        // Failed prefetches are retried once the document is shown.
+        return loadPreview(position, layerDescriptor)
+            .ignoreElement()
+            .onErrorComplete()
+            .subscribe();
+    }
+
+    /**
+     * Shows preview in the item, or placeholder if preview is {@code null}. Shown previews are kept out of the bitmap pool.
+     */
+    private void showPreview(@NonNull DocumentViewHolder holder, @Nullable Bitmap preview) {
+        if (holder.preview == preview) return;
+        if (preview != null) {
+            bitmapPool.retain(preview);
+        }
+        holder.itemPreviewImageView.setImageBitmap(preview != null ? preview : noPreviewDrawable.getBitmap());
+        // Previous preview is released only after it's no longer shown.
+        if (holder.preview != null) {
+            bitmapPool.release(holder.preview);
+        }
+        holder.preview = preview;
+    }
+
+    /**
+     * Returns pool of preview bitmaps, for example to inspect its statistics.
+     */
+    @NonNull
+    public BitmapPool getBitmapPool() {
+        return bitmapPool;
+    }
+
+    /**
+     * Informs adapter about the items currently shown by the grid, so that their previews are rendered first.
+     */
+    public void setVisibleRange(int firstVisiblePosition, int visibleItemCount, int columnCount) {
+        renderScheduler.setVisibleRange(firstVisiblePosition, visibleItemCount);
+        previewPrefetcher.onVisibleRangeChanged(firstVisiblePosition, visibleItemCount, columnCount, getCount());
+    }
+
+    /**
+     * Informs adapter about the scroll state of the grid. Previews are not prefetched while the grid is flinging.
+     * @param scrollState One of the {@link android.widget.AbsListView.OnScrollListener} scroll states.
+     */
+    public void setScrollState(int scrollState) {
+        previewPrefetcher.onScrollStateChanged(scrollState);
+    }
+
+    /**
+     * Sets the number of grid rows whose previews are loaded ahead of the visible rows in scroll direction.
+     * Defaults to {@link PreviewPrefetcher#DEFAULT_PREFETCH_ROW_COUNT}.
+     */
+    public void setPrefetchRowCount(int prefetchRowCount) {
+        previewPrefetcher.setPrefetchRowCount(prefetchRowCount);
+    }
+
     /**
      * Cancels ongoing rendering of document previews.
      */
     public void cancelPreviewRendering() {
+        previewPrefetcher.cancel();
         previewRenderDisposables.clear();
     }
 
     @Nullable
     private Bitmap getPreviewFromCache(@NonNull WebExampleDocumentLayerDescriptor layerDescriptor) {
-        return previewImageCache.get(getPreviewCacheKey(layerDescriptor));
+        final int version = previewDiskCache.getVersion(layerDescriptor.documentId);
+        return previewImageCache.get(getPreviewCacheKey(layerDescriptor, version));
     }
 
-    private void addPreviewToCache(@NonNull WebExampleDocumentLayerDescriptor layerDescriptor, @NonNull Bitmap bitmap) {
-        previewImageCache.put(getPreviewCacheKey(layerDescriptor), bitmap);
+    private void addPreviewToCache(@NonNull WebExampleDocumentLayerDescriptor layerDescriptor, int version, @NonNull Bitmap bitmap) {
+        // Preview is outdated already, it would never be looked up.
+        if (version != previewDiskCache.getVersion(layerDescriptor.documentId)) return;
+        // Released again once evicted or removed from the cache.
+        bitmapPool.retain(bitmap);
+        previewImageCache.put(getPreviewCacheKey(layerDescriptor, version), bitmap);
     }
 
     /**
-     * Invalidates preview for single document layer.
+     * Invalidates previews of the document the layer belongs to.
      */
     public void removePreviewFromCache(@NonNull WebExampleDocumentLayerDescriptor layerDescriptor) {
-        previewImageCache.remove(getPreviewCacheKey(layerDescriptor));
+        final int version = previewDiskCache.getVersion(layerDescriptor.documentId);
+        previewImageCache.remove(getPreviewCacheKey(layerDescriptor, version));
+        previewDiskCache.invalidate(layerDescriptor.documentId);
+    }
+
+    /**
+     * Invalidates previews of the documents, for example after they were changed or removed on the server. May be called
+     * from any thread. Outdated previews left in the memory cache are never shown again and age out of it. Previews of
+     * documents around the visible part of the grid are rendered again in the background, so they are up to date once
+     * they are shown.
+     */
+    public void removePreviewsFromCache(@NonNull Collection<String> documentIds) {
+        for (String documentId : documentIds) {
+            previewDiskCache.invalidate(documentId);
+        }
+        final List<String> invalidatedDocumentIds = new ArrayList<>(documentIds);
+        AndroidSchedulers.mainThread().scheduleDirect(() -> renderInvalidatedPreviews(invalidatedDocumentIds));
+    }
+
+    /**
+     * Renders previews of invalidated documents that are loaded by the adapter in the background.
+     */
+    private void renderInvalidatedPreviews(@NonNull List<String> documentIds) {
+        final Set<String> loadedDocumentIds = documents.getLoadedDocumentIds();
+        if (searchResults != null) {
+            for (WebExampleDocumentDescriptor document : searchResults) {
+                loadedDocumentIds.add(document.documentId);
+            }
+        }
+        for (String documentId : documentIds) {
+            if (!loadedDocumentIds.contains(documentId)) continue;
+            // Loaded descriptors might carry outdated tokens, so the document is read again. Removed documents are skipped.
+            previewRenderDisposables.add(Maybe.fromCallable(() -> webExampleDatabase.getDocument(documentId))
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .flatMap(documentDescriptor -> {
+                    final WebExampleDocumentLayerDescriptor layerDescriptor = documentDescriptor.getDefaultLayer();
+                    return getPreviewFromCache(layerDescriptor) != null
+                        ? Maybe.<Bitmap>empty()
+                        : loadPreview(PreviewRenderScheduler.NO_POSITION, layerDescriptor);
+                })
+                .ignoreElement()
+                .onErrorComplete()
+                .subscribe());
+        }
+    }
+
+    /**
+     * Reference a preview load holds on its bitmap. Releasing it before the bitmap was loaded, because the load was
+     * cancelled, prevents retaining the bitmap later on.
+     */
+    private static final class LoadReference {
+        @NonNull private final BitmapPool bitmapPool;
+        @Nullable private Bitmap bitmap;
+        private boolean released;
+
+        LoadReference(@NonNull BitmapPool bitmapPool) {
+            this.bitmapPool = bitmapPool;
+        }
+
+        synchronized void retain(@NonNull Bitmap bitmap) {
+            if (released || this.bitmap != null) return;
+            bitmapPool.retain(bitmap);
+            this.bitmap = bitmap;
+        }
+
+        synchronized void release() {
+            released = true;
+            if (bitmap != null) {
+                bitmapPool.release(bitmap);
+                bitmap = null;
+            }
+        }
     }
 
     @NonNull
-    private String getPreviewCacheKey(@NonNull WebExampleDocumentLayerDescriptor layerDescriptor) {
+    private String getPreviewCacheKey(@NonNull WebExampleDocumentLayerDescriptor layerDescriptor, int version) {
         if (layerDescriptor.layerName == null) {
-            return layerDescriptor.documentId;
+            return layerDescriptor.documentId + "_" + version;
         } else {
-            return layerDescriptor.documentId + "_" + layerDescriptor.layerName;
+            return layerDescriptor.documentId + "_" + version + "_" + layerDescriptor.layerName;
         }
     }
 }
@@ -7,6 +7,7 @@
 
 package com.pspdfkit.example.instant.ui.documentgrid;
 
+import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -43,6 +44,10 @@ class DocumentViewHolder {
     @NonNull public final ImageView itemPreviewImageView;
     @NonNull public final TextView itemTitleView;
     @Nullable public Disposable previewRenderDisposable;
+    /** Grid position the item is bound to, {@link PreviewRenderScheduler#NO_POSITION} while it's not bound. */
+    public int position = PreviewRenderScheduler.NO_POSITION;
+    /** Preview currently shown by the item, {@code null} while showing placeholder. */
+    @Nullable public Bitmap preview;
 
     private DocumentViewHolder(@NonNull View view) {
         this.view = view;
@@ -0,0 +1,177 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.ui.documentgrid;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
+import com.pspdfkit.example.instant.db.DocumentPage;
+import com.pspdfkit.example.instant.db.WebExampleDocumentsDatabase;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Window over documents stored in {@link WebExampleDocumentsDatabase}. Documents are loaded in pages as they are
+ * accessed and only a few pages are kept in memory, so memory use does not depend on the number of stored documents.
+ * Must be used from the main thread.
+ */
+class PagedDocumentList {
+
+    private static final String LOG_TAG = "PagedDocumentList";
+
+    /** Number of documents loaded at once. */
+    static final int PAGE_SIZE = 60;
+    /** Maximal number of pages kept in memory. */
+    private static final int MAX_LOADED_PAGES = 6;
+    /** Maximal number of page boundaries remembered for loading pages through their stored position. */
+    private static final int MAX_PAGE_ANCHORS = 256;
+    /** Number of documents before the end of a page at which the following page starts loading. */
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE / 3;
+
+    /**
+     * Listener notified when documents of a page become available.
+     */
+    interface OnPageLoadedListener {
+        void onPageLoaded();
+    }
+
+    private static class Page {
+        final int generation;
+        @NonNull final List<WebExampleDocumentDescriptor> documents;
+
+        Page(int generation, @NonNull List<WebExampleDocumentDescriptor> documents) {
+            this.generation = generation;
+            this.documents = documents;
+        }
+    }
+
+    @NonNull private final WebExampleDocumentsDatabase database;
+    @NonNull private final OnPageLoadedListener listener;
+
+    @NonNull private final LruCache<Integer, Page> pages = new LruCache<>(MAX_LOADED_PAGES);
+    /** Position of the last document of a page, keyed by page index. The following page is loaded after this position. */
+    @NonNull private final LruCache<Integer, Long> pageAnchors = new LruCache<>(MAX_PAGE_ANCHORS);
+    @NonNull private final Set<Integer> loadingPages = new HashSet<>();
+    @NonNull private final CompositeDisposable pageLoadDisposables = new CompositeDisposable();
+
+    /** Incremented whenever stored documents change. Pages of older generations are shown until they are reloaded. */
+    private int generation;
+    private int count;
+
+    PagedDocumentList(@NonNull WebExampleDocumentsDatabase database, @NonNull OnPageLoadedListener listener) {
+        this.database = database;
+        this.listener = listener;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns document at given position, or {@code null} if its page is not loaded yet. Missing pages start loading and
+     * {@link OnPageLoadedListener#onPageLoaded()} is called once they are available.
+     */
+    @Nullable
+    WebExampleDocumentDescriptor get(int position) {
+        if (position < 0 || position >= count) return null;
+
+        final int pageIndex = position / PAGE_SIZE;
+        final int positionInPage = position % PAGE_SIZE;
+        if (positionInPage >= PAGE_SIZE - PREFETCH_DISTANCE && (pageIndex + 1) * PAGE_SIZE < count) {
+            ensurePageLoaded(pageIndex + 1);
+        }
+
+        final Page page = ensurePageLoaded(pageIndex);
+        if (page == null || positionInPage >= page.documents.size()) return null;
+        return page.documents.get(positionInPage);
+    }
+
+    /**
+     * Returns ids of documents in loaded pages, including outdated ones.
+     */
+    @NonNull
+    Set<String> getLoadedDocumentIds() {
+        final Set<String> documentIds = new HashSet<>();
+        for (Page page : pages.snapshot().values()) {
+            for (WebExampleDocumentDescriptor document : page.documents) {
+                documentIds.add(document.documentId);
+            }
+        }
+        return documentIds;
+    }
+
+    /**
+     * Marks all loaded pages as outdated after stored documents changed. Outdated pages are reloaded on next access.
+     */
+    void invalidate(int count) {
+        this.count = count;
+        generation++;
+        pageLoadDisposables.clear();
+        loadingPages.clear();
+        // Boundaries may have moved, so pages are located by position until they have been loaded again.
+        pageAnchors.evictAll();
+    }
+
+    /**
+     * Stops loading pages and releases all loaded documents.
+     */
+    void clear() {
+        pageLoadDisposables.clear();
+        loadingPages.clear();
+        pages.evictAll();
+        pageAnchors.evictAll();
+    }
+
+    /**
+     * Returns page if it is loaded, possibly outdated. Starts loading it if it is missing or outdated.
+     */
+    @Nullable
+    private Page ensurePageLoaded(final int pageIndex) {
+        final Page page = pages.get(pageIndex);
+        if ((page == null || page.generation != generation) && loadingPages.add(pageIndex)) {
+            loadPage(pageIndex);
+        }
+        return page;
+    }
+
+    private void loadPage(final int pageIndex) {
+        final int loadGeneration = generation;
+        final Long anchor = pageIndex == 0 ? Long.valueOf(DocumentPage.START_POSITION) : pageAnchors.get(pageIndex - 1);
+        final Single<DocumentPage> pageLoad = anchor != null
+            ? Single.fromCallable(() -> database.getDocumentsAfter(anchor, PAGE_SIZE))
+            : Single.fromCallable(() -> database.getDocumentsAt(pageIndex * PAGE_SIZE, PAGE_SIZE));
+
+        pageLoadDisposables.add(pageLoad
+            .subscribeOn(Schedulers.io())
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(documentPage -> {
+                loadingPages.remove(pageIndex);
+                if (loadGeneration != generation) return;
+
+                pages.put(pageIndex, new Page(loadGeneration, documentPage.documents));
+                if (!documentPage.documents.isEmpty()) {
+                    pageAnchors.put(pageIndex, documentPage.endPosition);
+                }
+                listener.onPageLoaded();
+            }, throwable -> {
+                loadingPages.remove(pageIndex);
+                Log.e(LOG_TAG, "Error loading page of documents.", throwable);
+            }));
+    }
+}
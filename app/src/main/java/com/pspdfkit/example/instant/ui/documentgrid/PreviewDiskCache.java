@@ -0,0 +1,289 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.ui.documentgrid;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.pspdfkit.example.instant.api.WebExampleDocumentLayerDescriptor;
+import com.pspdfkit.utils.Size;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Disk cache of encoded document preview images, so that previews survive process restarts. Previews are keyed by
+ * document layer, preview size and content version of the document. The cache is limited to {@link #MAX_CACHE_SIZE_BYTES}
+ * and evicts least recently used previews first.
+ *
+ * <p>Loads capture the version with {@link #getVersion(String)} before they start and pass it along, so that a preview
+ * rendered from a document that was invalidated in the meantime is never stored under the new version.
+ */
+public class PreviewDiskCache {
+
+    private static final String LOG_TAG = "PreviewDiskCache";
+
+    private static final String CACHE_DIRECTORY = "kiosk_previews";
+    private static final String VERSIONS_PREFERENCES = "kiosk_preview_document_versions";
+    private static final long MAX_CACHE_SIZE_BYTES = 20 * 1024 * 1024;
+    private static final int JPEG_QUALITY = 90;
+
+    @Nullable private static PreviewDiskCache instance;
+
+    @NonNull private final File cacheDirectory;
+    /** Content version of every document whose previews were invalidated, keyed by document id. Guarded by this cache. */
+    @NonNull private final SharedPreferences versions;
+    /** Writes and evictions run one after another, off the calling thread. */
+    @NonNull private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, LOG_TAG));
+
+    /** Total size of cached files, or {@code -1} until computed by the writer. Only accessed by the writer. */
+    private long cacheSizeBytes = -1;
+
+    /**
+     * Returns the process-wide preview disk cache.
+     */
+    @NonNull
+    public static synchronized PreviewDiskCache getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new PreviewDiskCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private PreviewDiskCache(@NonNull Context context) {
+        cacheDirectory = new File(context.getCacheDir(), CACHE_DIRECTORY);
+        versions = context.getSharedPreferences(VERSIONS_PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Returns current content version of the document. The version changes whenever previews of the document are invalidated.
+     */
+    synchronized int getVersion(@NonNull String documentId) {
+        return versions.getInt(documentId, 0);
+    }
+
+    /**
+     * Returns cached preview of the layer in given version, or {@code null} if there is none.
+     */
+    @WorkerThread
+    @Nullable
+    Bitmap get(@NonNull WebExampleDocumentLayerDescriptor layerDescriptor,
+               @NonNull Size previewSize,
+               int version,
+               @NonNull BitmapPool bitmapPool) {
+        final File file = getFile(layerDescriptor, previewSize, version);
+        if (!file.exists()) return null;
+
+        // Decode into pooled bitmap if there is one large enough.
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        options.inBitmap = bitmapPool.get(options.outWidth, options.outHeight, Bitmap.Config.ARGB_8888);
+
+        final Bitmap pooledBitmap = options.inBitmap;
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            // Pooled bitmap could not be reused after all.
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        }
+        if (pooledBitmap != null && bitmap != pooledBitmap) {
+            bitmapPool.putUnused(pooledBitmap);
+        }
+        if (bitmap != null) {
+            // Modification time serves as last access time for eviction.
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+        }
+        return bitmap;
+    }
+
+    /**
+     * Stores preview of the layer. The preview is encoded and written in the background, so the bitmap must not be
+     * modified until {@code onWritten} is called. Previews of outdated versions are dropped.
+     * @param version   Version of the document captured before the preview was loaded.
+     * @param onWritten Called on background thread once the bitmap is no longer needed, whether writing succeeded or not.
+     */
+    void put(@NonNull WebExampleDocumentLayerDescriptor layerDescriptor,
+             @NonNull Size previewSize,
+             int version,
+             @NonNull Bitmap bitmap,
+             @NonNull Runnable onWritten) {
+        final File file = getFile(layerDescriptor, previewSize, version);
+        writer.execute(() -> {
+            try {
+                // Invalidation deletes outdated files on the writer, so checking here leaves no outdated files behind.
+                if (version == getVersion(layerDescriptor.documentId)) {
+                    write(file, bitmap);
+                }
+            } finally {
+                onWritten.run();
+            }
+        });
+    }
+
+    /**
+     * Writes preview to the cache file. Runs on the writer.
+     */
+    private void write(@NonNull File file, @NonNull Bitmap bitmap) {
+        if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) return;
+        final File temporaryFile = new File(file.getPath() + ".tmp");
+        try (OutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, outputStream);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Could not write document preview.", e);
+            //noinspection ResultOfMethodCallIgnored
+            temporaryFile.delete();
+            return;
+        }
+        // Readers never see partially written previews.
+        final long previousLength = file.length();
+        if (!temporaryFile.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temporaryFile.delete();
+            return;
+        }
+        if (cacheSizeBytes >= 0) {
+            cacheSizeBytes += file.length() - previousLength;
+        }
+        trimToSize();
+    }
+
+    /**
+     * Marks cached previews of all layers of the document as outdated, for example when the document might have been
+     * edited or was changed on the server. Outdated previews are deleted in the background.
+     */
+    public void invalidate(@NonNull String documentId) {
+        final int previousVersion;
+        synchronized (this) {
+            previousVersion = versions.getInt(documentId, 0);
+            versions.edit().putInt(documentId, previousVersion + 1).apply();
+        }
+
+        final String previousPrefix = getFilePrefix(documentId, previousVersion);
+        writer.execute(() -> {
+            final File[] files = cacheDirectory.listFiles((directory, name) -> name.startsWith(previousPrefix));
+            if (files == null) return;
+            for (File file : files) {
+                deleteFile(file);
+            }
+        });
+    }
+
+    /**
+     * Deletes all cached previews, for example when the user logs out.
+     */
+    public void clear() {
+        synchronized (this) {
+            versions.edit().clear().apply();
+        }
+        writer.execute(() -> {
+            final File[] files = cacheDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+            cacheSizeBytes = 0;
+        });
+    }
+
+    /**
+     * Evicts least recently used previews until the cache fits into its size limit. Runs on the writer.
+     */
+    private void trimToSize() {
+        if (cacheSizeBytes < 0) {
+            cacheSizeBytes = 0;
+            final File[] files = cacheDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    cacheSizeBytes += file.length();
+                }
+            }
+        }
+        if (cacheSizeBytes <= MAX_CACHE_SIZE_BYTES) return;
+
+        final File[] files = cacheDirectory.listFiles();
+        if (files == null) return;
+        // Sort order must stay stable while sorting, so modification times are read only once.
+        final long[] lastModified = new long[files.length];
+        final Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, (Comparator<Integer>) (first, second) -> Long.compare(lastModified[first], lastModified[second]));
+        for (Integer index : order) {
+            if (cacheSizeBytes <= MAX_CACHE_SIZE_BYTES) break;
+            deleteFile(files[index]);
+        }
+    }
+
+    /**
+     * Deletes cached file and updates cache size. Runs on the writer.
+     */
+    private void deleteFile(@NonNull File file) {
+        final long length = file.length();
+        if (file.delete() && cacheSizeBytes >= 0) {
+            cacheSizeBytes -= length;
+        }
+    }
+
+    @NonNull
+    private File getFile(@NonNull WebExampleDocumentLayerDescriptor layerDescriptor, @NonNull Size previewSize, int version) {
+        final String layerName = layerDescriptor.layerName == null ? "" : layerDescriptor.layerName;
+        return new File(cacheDirectory, getFilePrefix(layerDescriptor.documentId, version) +
+            hash(layerName) + "_" + (int) previewSize.width + "x" + (int) previewSize.height + ".jpg");
+    }
+
+    /**
+     * Returns file name prefix shared by all cached previews of the document version. Document ids and layer names are
+     * hashed, since they may contain characters that are not allowed in file names.
+     */
+    @NonNull
+    private static String getFilePrefix(@NonNull String documentId, int version) {
+        return hash(documentId) + "_" + version + "_";
+    }
+
+    @NonNull
+    private static String hash(@NonNull String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(Charset.forName("UTF-8")));
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is available on every Android device.
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.ui.documentgrid;
+
+import android.os.SystemClock;
+import android.widget.AbsListView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Loads previews of grid rows that are about to be scrolled into view, so that they are cached by the time they are
+ * shown. The prefetcher follows the scroll direction and looks further ahead the faster the grid scrolls. Prefetching
+ * is cancelled when the scroll direction flips and paused while the grid is flinging, since flinging skips over most
+ * rows. Must be used from the main thread.
+ */
+class PreviewPrefetcher {
+
+    /** Default number of rows loaded ahead of the visible range. */
+    static final int DEFAULT_PREFETCH_ROW_COUNT = 2;
+
+    /** Rows that will be scrolled into view within this time are loaded ahead, up to twice the configured row count. */
+    private static final float LOOKAHEAD_SECONDS = 0.5f;
+
+    /**
+     * Loads previews into the preview cache.
+     */
+    interface PreviewLoader {
+        /**
+         * Starts loading preview of the document at given position.
+         * @return Disposable cancelling the load, or {@code null} if there is nothing to load.
+         */
+        @Nullable
+        Disposable loadPreview(int position);
+    }
+
+    @NonNull private final PreviewLoader previewLoader;
+    /** Prefetches keyed by position. Entries of finished prefetches are disposed and removed on the next update. */
+    @NonNull private final Map<Integer, Disposable> prefetches = new HashMap<>();
+
+    private int prefetchRowCount = DEFAULT_PREFETCH_ROW_COUNT;
+    private boolean isFlinging;
+
+    private int firstVisiblePosition;
+    private int visibleItemCount;
+    private int columnCount = 1;
+    private int itemCount;
+
+    /** {@code 1} when scrolling towards the end of the grid, {@code -1} when scrolling towards its start. */
+    private int scrollDirection = 1;
+    /** Smoothed scroll velocity in items per second. */
+    private float scrollVelocity;
+    private long lastScrollTimeMs;
+
+    PreviewPrefetcher(@NonNull PreviewLoader previewLoader) {
+        this.previewLoader = previewLoader;
+    }
+
+    /**
+     * Sets the number of rows loaded ahead of the visible range. Faster scrolling loads up to twice as many rows.
+     */
+    void setPrefetchRowCount(int prefetchRowCount) {
+        this.prefetchRowCount = Math.max(0, prefetchRowCount);
+        prefetch();
+    }
+
+    /**
+     * Called with the {@link AbsListView.OnScrollListener} scroll state of the grid.
+     */
+    void onScrollStateChanged(int scrollState) {
+        isFlinging = scrollState == AbsListView.OnScrollListener.SCROLL_STATE_FLING;
+        if (scrollState == AbsListView.OnScrollListener.SCROLL_STATE_IDLE) {
+            scrollVelocity = 0;
+        }
+        // Prefetching resumes once the fling has settled.
+        prefetch();
+    }
+
+    /**
+     * Called whenever the grid scrolled or changed its layout.
+     */
+    void onVisibleRangeChanged(int firstVisiblePosition, int visibleItemCount, int columnCount, int itemCount) {
+        final long now = SystemClock.uptimeMillis();
+        final int scrolledItems = firstVisiblePosition - this.firstVisiblePosition;
+        if (scrolledItems != 0) {
+            final int direction = scrolledItems > 0 ? 1 : -1;
+            if (direction != scrollDirection) {
+                // Rows prefetched for the previous direction won't be needed anytime soon.
+                cancel();
+                scrollDirection = direction;
+                scrollVelocity = 0;
+            }
+            final long elapsedMs = Math.max(1, now - lastScrollTimeMs);
+            final float velocity = Math.abs(scrolledItems) * 1000f / elapsedMs;
+            scrollVelocity = scrollVelocity == 0 ? velocity : (scrollVelocity + velocity) / 2;
+            lastScrollTimeMs = now;
+        } else if (this.visibleItemCount == visibleItemCount && this.columnCount == columnCount && this.itemCount == itemCount) {
+            // Scrolled within the same rows, nothing new to prefetch.
+            return;
+        }
+
+        this.firstVisiblePosition = firstVisiblePosition;
+        this.visibleItemCount = visibleItemCount;
+        this.columnCount = Math.max(1, columnCount);
+        this.itemCount = itemCount;
+        prefetch();
+    }
+
+    /**
+     * Cancels all ongoing prefetches.
+     */
+    void cancel() {
+        for (Disposable prefetch : prefetches.values()) {
+            prefetch.dispose();
+        }
+        prefetches.clear();
+    }
+
+    /**
+     * Starts loading rows ahead of the visible range and cancels prefetches that are no longer ahead of it.
+     */
+    private void prefetch() {
+        if (isFlinging || visibleItemCount <= 0) return;
+
+        final float scrollVelocityRows = scrollVelocity / columnCount;
+        final int rowCount = Math.min(2 * prefetchRowCount, Math.max(prefetchRowCount, Math.round(scrollVelocityRows * LOOKAHEAD_SECONDS)));
+        // Renders further than one screen ahead are dropped by the render scheduler anyway.
+        final int prefetchItemCount = Math.min(rowCount * columnCount, visibleItemCount);
+
+        final int start;
+        final int end;
+        if (scrollDirection > 0) {
+            start = firstVisiblePosition + visibleItemCount;
+            end = Math.min(itemCount, start + prefetchItemCount);
+        } else {
+            end = firstVisiblePosition;
+            start = Math.max(0, end - prefetchItemCount);
+        }
+
+        // Finished prefetches are disposed too, so they are dropped here as well.
+        for (Map.Entry<Integer, Disposable> prefetch : new ArrayList<>(prefetches.entrySet())) {
+            final int position = prefetch.getKey();
+            if (position < start || position >= end || prefetch.getValue().isDisposed()) {
+                prefetch.getValue().dispose();
+                prefetches.remove(position);
+            }
+        }
+
+        // Rows closest to the visible range are loaded first. Previews that are already cached are skipped by the loader.
+        for (int i = 0; i < end - start; i++) {
+            final int position = scrollDirection > 0 ? start + i : end - 1 - i;
+            if (prefetches.containsKey(position)) continue;
+            final Disposable prefetch = previewLoader.loadPreview(position);
+            if (prefetch != null && !prefetch.isDisposed()) {
+                prefetches.put(position, prefetch);
+            }
+        }
+    }
+}
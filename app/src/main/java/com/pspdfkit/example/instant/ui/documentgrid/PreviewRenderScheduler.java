@@ -0,0 +1,232 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.ui.documentgrid;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import io.reactivex.Maybe;
+import io.reactivex.MaybeEmitter;
+import io.reactivex.Single;
+
+/**
+ * Limits the number of previews rendered at once and decides which preview to render next. Previews of visible grid
+ * items are rendered first, followed by items close to the visible range and finally background work that isn't tied
+ * to a grid position, like re-rendering invalidated previews. Queued renders of items that scrolled far out of view are
+ * dropped.
+ *
+ * <p>Grid items that are bound to a view count as visible. The grid binds items before it reports its new visible
+ * range, so their renders would otherwise be dropped or deferred.
+ */
+class PreviewRenderScheduler {
+
+    /** Position of work that isn't tied to a grid item. Such work is rendered with {@link Priority#BACKGROUND}. */
+    static final int NO_POSITION = -1;
+
+    /** Opening and rendering documents is CPU and I/O heavy, so only a few renders run at once. */
+    private static final int MAX_CONCURRENT_RENDERS = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+
+    enum Priority {
+        VISIBLE,
+        PREFETCH,
+        BACKGROUND
+    }
+
+    private static class Task implements Comparable<Task> {
+        @NonNull final String key;
+        final long sequenceNumber;
+        @NonNull final Single<Bitmap> render;
+        @NonNull final MaybeEmitter<Bitmap> emitter;
+        int position;
+        @NonNull Priority priority;
+
+        Task(@NonNull String key, int position, long sequenceNumber, @NonNull Single<Bitmap> render, @NonNull MaybeEmitter<Bitmap> emitter, @NonNull Priority priority) {
+            this.key = key;
+            this.position = position;
+            this.sequenceNumber = sequenceNumber;
+            this.render = render;
+            this.emitter = emitter;
+            this.priority = priority;
+        }
+
+        @Override
+        public int compareTo(@NonNull Task other) {
+            final int priorityComparison = priority.compareTo(other.priority);
+            // Renders of the same priority run in the order they were scheduled.
+            return priorityComparison != 0 ? priorityComparison : Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+
+    @NonNull private final PriorityQueue<Task> queuedTasks = new PriorityQueue<>();
+    /** Positions of grid items that are currently bound to a view. */
+    @NonNull private final Set<Integer> boundPositions = new HashSet<>();
+    private int runningTaskCount;
+    private long nextSequenceNumber;
+
+    private int firstVisiblePosition;
+    /** Number of visible grid items, or {@code 0} while the grid hasn't laid out any items. */
+    private int visibleItemCount;
+
+    /**
+     * Schedules preview render for the grid item at given position. The render is subscribed once a worker slot is
+     * free. Renders that already started always run to completion, so the number of running renders stays bounded even
+     * if their results are no longer needed.
+     * @param key      Identifies the render, see {@link #setPosition(String, int)}.
+     * @param position Position of the grid item, or {@link #NO_POSITION} for background work.
+     * @return Rendered preview, or empty if the render was dropped because the item scrolled out of view.
+     */
+    @NonNull
+    Maybe<Bitmap> schedule(@NonNull final String key, final int position, @NonNull final Single<Bitmap> render) {
+        return Maybe.create(emitter -> {
+            final Task task;
+            synchronized (this) {
+                final Priority priority = getPriority(position);
+                if (priority == null) {
+                    emitter.onComplete();
+                    return;
+                }
+                task = new Task(key, position, nextSequenceNumber++, render, emitter, priority);
+                queuedTasks.add(task);
+            }
+            emitter.setCancellable(() -> {
+                synchronized (this) {
+                    queuedTasks.remove(task);
+                }
+            });
+            runQueuedTasks();
+        });
+    }
+
+    /**
+     * Updates priorities of queued renders after the visible range of the grid changed. Renders of items far out of
+     * view are dropped.
+     */
+    void setVisibleRange(int firstVisiblePosition, int visibleItemCount) {
+        final List<Task> droppedTasks;
+        synchronized (this) {
+            if (this.firstVisiblePosition == firstVisiblePosition && this.visibleItemCount == visibleItemCount) return;
+            this.firstVisiblePosition = firstVisiblePosition;
+            this.visibleItemCount = visibleItemCount;
+            droppedTasks = updatePriorities();
+        }
+        for (Task task : droppedTasks) {
+            task.emitter.onComplete();
+        }
+    }
+
+    /**
+     * Marks grid item at given position as bound to a view, or no longer bound. Renders of bound items have
+     * {@link Priority#VISIBLE visible priority}. Renders of items that are no longer bound are dropped if they are far
+     * out of view.
+     */
+    void setItemBound(int position, boolean bound) {
+        final List<Task> droppedTasks;
+        synchronized (this) {
+            if (bound ? !boundPositions.add(position) : !boundPositions.remove(position)) return;
+            droppedTasks = updatePriorities();
+        }
+        for (Task task : droppedTasks) {
+            task.emitter.onComplete();
+        }
+    }
+
+    /**
+     * Moves queued render to the grid item at given position, if this raises its priority. Used when a grid item needs
+     * a preview that is already rendered for another purpose, like in the background.
+     */
+    synchronized void setPosition(@NonNull String key, int position) {
+        final Priority priority = getPriority(position);
+        if (priority == null) return;
+        for (Task task : queuedTasks) {
+            if (!task.key.equals(key)) continue;
+            if (priority.compareTo(task.priority) < 0) {
+                queuedTasks.remove(task);
+                task.position = position;
+                task.priority = priority;
+                queuedTasks.add(task);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Recomputes priorities of queued renders.
+     * @return Renders that were dropped from the queue, to be completed outside of the lock.
+     */
+    @NonNull
+    private List<Task> updatePriorities() {
+        final List<Task> droppedTasks = new ArrayList<>();
+        // Priority queue doesn't support changing priorities in place, so it is rebuilt.
+        final List<Task> tasks = new ArrayList<>(queuedTasks);
+        queuedTasks.clear();
+        for (Task task : tasks) {
+            final Priority priority = getPriority(task.position);
+            if (priority == null) {
+                droppedTasks.add(task);
+            } else {
+                task.priority = priority;
+                queuedTasks.add(task);
+            }
+        }
+        return droppedTasks;
+    }
+
+    /**
+     * Returns priority of render for given position, or {@code null} if the render should be dropped. Items within one
+     * screen of the visible range are prefetched.
+     */
+    @Nullable
+    private Priority getPriority(int position) {
+        if (position == NO_POSITION) return Priority.BACKGROUND;
+        if (boundPositions.contains(position)) return Priority.VISIBLE;
+        // Renders requested before the grid reported its visible range are for the first visible items.
+        if (visibleItemCount <= 0) return Priority.VISIBLE;
+
+        final int lastVisiblePosition = firstVisiblePosition + visibleItemCount - 1;
+        if (position >= firstVisiblePosition && position <= lastVisiblePosition) return Priority.VISIBLE;
+        if (position >= firstVisiblePosition - visibleItemCount && position <= lastVisiblePosition + visibleItemCount) {
+            return Priority.PREFETCH;
+        }
+        return null;
+    }
+
+    /**
+     * Starts queued renders with the highest priority while worker slots are free.
+     */
+    private void runQueuedTasks() {
+        while (true) {
+            final Task task;
+            synchronized (this) {
+                if (runningTaskCount >= MAX_CONCURRENT_RENDERS) return;
+                task = queuedTasks.poll();
+                if (task == null) return;
+                runningTaskCount++;
+            }
+            // Results of cancelled tasks are silently dropped by their emitter.
+            //noinspection ResultOfMethodCallIgnored
+            task.render
+                .doFinally(this::onTaskFinished)
+                .subscribe(task.emitter::onSuccess, task.emitter::tryOnError);
+        }
+    }
+
+    private void onTaskFinished() {
+        synchronized (this) {
+            runningTaskCount--;
+        }
+        runQueuedTasks();
+    }
+}
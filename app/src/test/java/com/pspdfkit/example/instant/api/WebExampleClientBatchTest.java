@@ -0,0 +1,105 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class WebExampleClientBatchTest {
+
+    private static final int DOCUMENT_COUNT = 250;
+    private static final int BATCH_SIZE = 100;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private WebExampleTestServer server;
+    private WebExampleClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new WebExampleTestServer(DOCUMENT_COUNT);
+        server.start();
+        client = WebExampleClient.getInstance(ApplicationProvider.getApplicationContext(), server.getUrl(), "user");
+        client.setJwtBatchSize(BATCH_SIZE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        WebExampleClient.resetSharedState();
+    }
+
+    @Test
+    public void tokensAreRequestedInBatches() {
+        server.setBatchedTokensSupported(true);
+
+        assertAllDocumentsResolved(getDocuments());
+        assertEquals(3, server.getBatchedTokenRequestCount());
+        assertEquals(0, server.getTokenRequestCount());
+    }
+
+    @Test
+    public void tokensAreRequestedOneByOneWithoutBatchSupport() {
+        server.setBatchedTokensSupported(false);
+
+        assertAllDocumentsResolved(getDocuments());
+        // Batches already in flight when the first one is rejected are resolved one by one as well.
+        assertTrue(server.getBatchedTokenRequestCount() >= 1);
+        assertEquals(DOCUMENT_COUNT, server.getTokenRequestCount());
+
+        // Once known, batching is not attempted again.
+        final int batchedTokenRequestCount = server.getBatchedTokenRequestCount();
+        assertAllDocumentsResolved(getDocuments());
+        assertEquals(batchedTokenRequestCount, server.getBatchedTokenRequestCount());
+    }
+
+    @Test
+    public void documentsMissingFromBatchAreRequestedOneByOne() {
+        server.setBatchedTokensSupported(true);
+        server.setDocumentsMissingFromBatches(new HashSet<>(Arrays.asList(
+            WebExampleTestServer.getDocumentId(5),
+            WebExampleTestServer.getDocumentId(150))));
+
+        assertAllDocumentsResolved(getDocuments());
+        assertEquals(3, server.getBatchedTokenRequestCount());
+        assertEquals(2, server.getTokenRequestCount());
+    }
+
+    private List<WebExampleDocumentDescriptor> getDocuments() {
+        return client.getDocumentsAsync()
+            .toList()
+            .timeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .blockingGet();
+    }
+
+    private static void assertAllDocumentsResolved(List<WebExampleDocumentDescriptor> documents) {
+        assertEquals(DOCUMENT_COUNT, documents.size());
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            final WebExampleDocumentDescriptor document = documents.get(i);
+            assertEquals(WebExampleTestServer.getDocumentId(i), document.documentId);
+            assertEquals(WebExampleTestServer.getToken(document.documentId), document.getDefaultLayer().jwt);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class WebExampleClientDocumentListTest {
+
+    private static final int DOCUMENT_COUNT = 250;
+    private static final int PAGE_SIZE = 100;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private WebExampleTestServer server;
+    private WebExampleClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new WebExampleTestServer(DOCUMENT_COUNT);
+        server.start();
+        client = WebExampleClient.getInstance(ApplicationProvider.getApplicationContext(), server.getUrl(), "user");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        WebExampleClient.resetSharedState();
+    }
+
+    @Test
+    public void modifiedDocumentListIsDownloadedOnce() {
+        assertAllDocumentsResolved(getDocuments(true));
+        // The page that was checked for modifications is read right away instead of being requested again.
+        assertEquals(1, server.getDocumentListRequestCount());
+    }
+
+    @Test
+    public void documentsOfAllPagesAreResolved() {
+        server.setPagingSupported(true);
+        client.setPageSize(PAGE_SIZE);
+
+        assertAllDocumentsResolved(getDocuments(false));
+        assertEquals(3, server.getDocumentListRequestCount());
+        assertEquals(DOCUMENT_COUNT, server.getTokenRequestCount());
+    }
+
+    @Test
+    public void pageFillingTheLastDocumentsEndsTheList() {
+        server.setPagingSupported(true);
+        client.setPageSize(DOCUMENT_COUNT);
+
+        assertAllDocumentsResolved(getDocuments(false));
+        assertEquals(1, server.getDocumentListRequestCount());
+    }
+
+    @Test
+    public void modifiedPagedDocumentListIsDownloadedOnce() {
+        server.setPagingSupported(true);
+        client.setPageSize(PAGE_SIZE);
+
+        assertAllDocumentsResolved(getDocuments(true));
+        assertEquals(3, server.getDocumentListRequestCount());
+    }
+
+    private List<WebExampleDocumentDescriptor> getDocuments(boolean onlyIfModified) {
+        return client.getDocumentsAsync(onlyIfModified)
+            .toList()
+            .timeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .blockingGet();
+    }
+
+    private static void assertAllDocumentsResolved(List<WebExampleDocumentDescriptor> documents) {
+        assertEquals(DOCUMENT_COUNT, documents.size());
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            assertEquals(WebExampleTestServer.getDocumentId(i), documents.get(i).documentId);
+        }
+    }
+}
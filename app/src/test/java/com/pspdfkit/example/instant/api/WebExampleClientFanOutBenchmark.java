@@ -0,0 +1,118 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Measures how long {@link WebExampleClient#getDocumentsAsync()} takes to resolve a catalog of 5k documents against a
+ * local server, and how long single token requests take from reaching the server until their document is emitted. The
+ * same catalog is resolved with batched token requests for comparison. Run with {@code ./gradlew testDebugUnitTest -Pbenchmarks}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class WebExampleClientFanOutBenchmark {
+
+    private static final int DOCUMENT_COUNT = 5000;
+    private static final int MAX_CONCURRENT_REQUESTS = WebExampleClient.DEFAULT_MAX_CONCURRENT_REQUESTS;
+
+    private WebExampleTestServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue("Benchmarks only run with -Pbenchmarks.", Boolean.getBoolean("benchmarks"));
+        server = new WebExampleTestServer(DOCUMENT_COUNT);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (server != null) {
+            server.shutdown();
+        }
+        WebExampleClient.resetSharedState();
+    }
+
+    @Test
+    public void orderedFanOut() {
+        runFanOut(WebExampleClient.FanOutMode.ORDERED);
+    }
+
+    @Test
+    public void unorderedFanOut() {
+        runFanOut(WebExampleClient.FanOutMode.UNORDERED);
+    }
+
+    @Test
+    public void batchedTokenRequests() {
+        server.setBatchedTokensSupported(true);
+        final WebExampleClient client = WebExampleClient.getInstance(ApplicationProvider.getApplicationContext(), server.getUrl(), "user");
+        client.setFanOut(WebExampleClient.FanOutMode.ORDERED, MAX_CONCURRENT_REQUESTS);
+        client.setJwtBatchSize(WebExampleClient.DEFAULT_JWT_BATCH_SIZE);
+
+        final long start = System.nanoTime();
+        final List<WebExampleDocumentDescriptor> documents = client.getDocumentsAsync().toList().blockingGet();
+        final long totalTime = System.nanoTime() - start;
+
+        assertEquals(DOCUMENT_COUNT, documents.size());
+        assertEquals(0, server.getTokenRequestCount());
+        System.out.println(String.format("Batched token requests for %d documents, %d per batch: total %d ms, %d requests",
+            DOCUMENT_COUNT, WebExampleClient.DEFAULT_JWT_BATCH_SIZE, TimeUnit.NANOSECONDS.toMillis(totalTime),
+            server.getBatchedTokenRequestCount()));
+    }
+
+    private void runFanOut(WebExampleClient.FanOutMode fanOutMode) {
+        final WebExampleClient client = WebExampleClient.getInstance(ApplicationProvider.getApplicationContext(), server.getUrl(), "user");
+        client.setFanOut(fanOutMode, MAX_CONCURRENT_REQUESTS);
+        // Tokens are requested one by one, which is what the fan-out bounds.
+        client.setJwtBatchSize(0);
+
+        final List<Long> latencies = new ArrayList<>(DOCUMENT_COUNT);
+        final long start = System.nanoTime();
+        final List<WebExampleDocumentDescriptor> documents = client.getDocumentsAsync()
+            .doOnNext(document -> {
+                final Long requestTime = server.getTokenRequestTime(document.documentId);
+                assertNotNull(requestTime);
+                latencies.add(System.nanoTime() - requestTime);
+            })
+            .toList()
+            .blockingGet();
+        final long totalTime = System.nanoTime() - start;
+
+        assertEquals(DOCUMENT_COUNT, documents.size());
+        assertEquals(DOCUMENT_COUNT, server.getTokenRequestCount());
+        if (fanOutMode == WebExampleClient.FanOutMode.ORDERED) {
+            for (int i = 0; i < DOCUMENT_COUNT; i++) {
+                assertEquals(WebExampleTestServer.getDocumentId(i), documents.get(i).documentId);
+            }
+        }
+
+        Collections.sort(latencies);
+        final long p99Latency = latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1);
+        System.out.println(String.format("%s fan-out of %d documents, %d in flight: total %d ms, p99 per-token latency %.2f ms",
+            fanOutMode, DOCUMENT_COUNT, MAX_CONCURRENT_REQUESTS, TimeUnit.NANOSECONDS.toMillis(totalTime), p99Latency / 1e6));
+    }
+}
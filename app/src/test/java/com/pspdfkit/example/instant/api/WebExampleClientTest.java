@@ -0,0 +1,126 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.observers.TestObserver;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class WebExampleClientTest {
+
+    private static final String DOCUMENT_ID = "document";
+    /** Token without "exp" claim, so it never becomes due for refresh while the test runs. */
+    private static final String TOKEN = "token";
+    private static final int CALLER_COUNT = 8;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /** Token responses are held back until this latch is released, so that all callers overlap with the first request. */
+    private final CountDownLatch responseLatch = new CountDownLatch(1);
+    private MockWebServer server;
+    private WebExampleClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) throws InterruptedException {
+                if (!("/api/document/" + DOCUMENT_ID).equals(request.getPath())) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                responseLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                return new MockResponse().setBody("{\"success\":true,\"token\":\"" + TOKEN + "\"}");
+            }
+        });
+        server.start();
+        client = WebExampleClient.getInstance(ApplicationProvider.getApplicationContext(), server.url("/").toString(), "user");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        responseLatch.countDown();
+        server.shutdown();
+        // Clients and their HTTP cache are shared statically, so they would leak into the next test.
+        WebExampleClient.resetSharedState();
+    }
+
+    @Test
+    public void concurrentJwtRequestsShareSingleNetworkRequest() throws Exception {
+        final List<TestObserver<String>> observers = new ArrayList<>();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < CALLER_COUNT; i++) {
+            final Thread caller = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                final TestObserver<String> observer = client.getJwt(DOCUMENT_ID).test();
+                synchronized (observers) {
+                    observers.add(observer);
+                }
+            });
+            caller.start();
+            callers.add(caller);
+        }
+
+        // All callers subscribe while the first request is still waiting for its response.
+        startLatch.countDown();
+        for (Thread caller : callers) {
+            caller.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        }
+        responseLatch.countDown();
+
+        assertEquals(CALLER_COUNT, observers.size());
+        for (TestObserver<String> observer : observers) {
+            observer.awaitDone(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .assertNoErrors()
+                .assertValue(TOKEN);
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void invalidatedJwtIsRequestedAgain() {
+        responseLatch.countDown();
+
+        client.getJwt(DOCUMENT_ID).test().awaitDone(TIMEOUT_SECONDS, TimeUnit.SECONDS).assertValue(TOKEN);
+        // Cached token is returned without contacting the server.
+        client.getJwt(DOCUMENT_ID).test().awaitDone(TIMEOUT_SECONDS, TimeUnit.SECONDS).assertValue(TOKEN);
+        assertEquals(1, server.getRequestCount());
+
+        client.invalidateJwt(DOCUMENT_ID);
+        client.getJwt(DOCUMENT_ID).test().awaitDone(TIMEOUT_SECONDS, TimeUnit.SECONDS).assertValue(TOKEN);
+        assertEquals(2, server.getRequestCount());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import com.google.gson.Gson;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares decoding document lists of 1k, 10k and 100k documents one by one through {@link WebExampleDocumentListReader}
+ * with decoding them into a whole {@link WebExampleDocumentList}. Reports throughput and heap still in use once the
+ * list has been decoded. Run with {@code ./gradlew testDebugUnitTest -Pbenchmarks}.
+ */
+public class WebExampleDocumentListReaderBenchmark {
+
+    private static final int[] DOCUMENT_COUNTS = {1_000, 10_000, 100_000};
+    /** Untimed runs per document count, so that measured runs don't include class loading and JIT compilation. */
+    private static final int WARM_UP_RUNS = 3;
+
+    private final Gson gson = WebExampleTypeAdapters.createGson();
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Benchmarks only run with -Pbenchmarks.", Boolean.getBoolean("benchmarks"));
+    }
+
+    @Test
+    public void streamingDecode() throws IOException {
+        for (int documentCount : DOCUMENT_COUNTS) {
+            final String json = WebExampleTestServer.createDocumentList(documentCount);
+            for (int i = 0; i < WARM_UP_RUNS; i++) {
+                assertEquals(documentCount, readDocuments(json));
+            }
+
+            final long heapBefore = getUsedHeap();
+            final long start = System.nanoTime();
+            assertEquals(documentCount, readDocuments(json));
+            final long time = System.nanoTime() - start;
+            report("Streaming", documentCount, time, getUsedHeap() - heapBefore);
+        }
+    }
+
+    @Test
+    public void wholeListDecode() {
+        for (int documentCount : DOCUMENT_COUNTS) {
+            final String json = WebExampleTestServer.createDocumentList(documentCount);
+            for (int i = 0; i < WARM_UP_RUNS; i++) {
+                assertEquals(documentCount, gson.fromJson(json, WebExampleDocumentList.class).documents.size());
+            }
+
+            final long heapBefore = getUsedHeap();
+            final long start = System.nanoTime();
+            final WebExampleDocumentList documentList = gson.fromJson(json, WebExampleDocumentList.class);
+            final long time = System.nanoTime() - start;
+            // The decoded list is still referenced while the heap is measured.
+            final long heapUsed = getUsedHeap() - heapBefore;
+            assertEquals(documentCount, documentList.documents.size());
+            report("Whole list", documentCount, time, heapUsed);
+        }
+    }
+
+    /**
+     * Reads all documents without keeping them, like the client does while resolving them.
+     * @return Number of documents read.
+     */
+    private int readDocuments(String json) throws IOException {
+        int count = 0;
+        try (WebExampleDocumentListReader reader = new WebExampleDocumentListReader(gson, new StringReader(json))) {
+            while (reader.nextDocument() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long getUsedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(String mode, int documentCount, long time, long heapUsed) {
+        System.out.println(String.format("%s decode of %d documents: %d ms, %.0f documents/s, %d KB retained",
+            mode, documentCount, TimeUnit.NANOSECONDS.toMillis(time), documentCount / (time / 1e9), Math.max(0, heapUsed) / 1024));
+    }
+}
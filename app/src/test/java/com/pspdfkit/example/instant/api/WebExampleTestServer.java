@@ -0,0 +1,225 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Local stand-in for the web example server. Serves a generated catalog through "GET /api/documents" and tokens of its
+ * documents through "GET /api/document/:id". The batched "POST /api/documents/tokens" endpoint can be switched on, so
+ * that both ways of requesting tokens can be compared. Paging of the document list can be switched on as well, otherwise
+ * the whole catalog is listed at once like older servers do.
+ */
+class WebExampleTestServer extends Dispatcher {
+
+    private static final String DOCUMENTS_PATH = "/api/documents";
+    private static final String DOCUMENT_PATH_PREFIX = "/api/document/";
+    private static final String TOKENS_PATH = "/api/documents/tokens";
+
+    @NonNull private final MockWebServer server = new MockWebServer();
+    private final int documentCount;
+
+    /** Time at which the token request of a document arrived, in {@link System#nanoTime()} units, keyed by document id. */
+    @NonNull private final Map<String, Long> tokenRequestTimes = new ConcurrentHashMap<>();
+    @NonNull private final AtomicInteger documentListRequestCount = new AtomicInteger();
+    @NonNull private final AtomicInteger tokenRequestCount = new AtomicInteger();
+    @NonNull private final AtomicInteger batchedTokenRequestCount = new AtomicInteger();
+
+    private volatile boolean batchedTokensSupported;
+    private volatile boolean pagingSupported;
+    /** Documents whose tokens are left out of batched token responses. */
+    @NonNull private volatile Set<String> documentsMissingFromBatches = Collections.emptySet();
+
+    WebExampleTestServer(int documentCount) {
+        this.documentCount = documentCount;
+        server.setDispatcher(this);
+    }
+
+    void start() throws IOException {
+        server.start();
+    }
+
+    void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    @NonNull
+    String getUrl() {
+        return server.url("/").toString();
+    }
+
+    /**
+     * Sets whether the server answers batched token requests, or responds with "404 Not Found" like older servers.
+     */
+    void setBatchedTokensSupported(boolean batchedTokensSupported) {
+        this.batchedTokensSupported = batchedTokensSupported;
+    }
+
+    /**
+     * Sets whether the document list is split into pages according to the "cursor" and "limit" query parameters. Cursors
+     * handed out by the server are positions in the catalog.
+     */
+    void setPagingSupported(boolean pagingSupported) {
+        this.pagingSupported = pagingSupported;
+    }
+
+    /**
+     * Leaves tokens of the documents out of batched token responses. They can still be requested one by one.
+     */
+    void setDocumentsMissingFromBatches(@NonNull Set<String> documentIds) {
+        this.documentsMissingFromBatches = documentIds;
+    }
+
+    /**
+     * Returns id of the document at given position of the catalog.
+     */
+    @NonNull
+    static String getDocumentId(int position) {
+        return "document-" + position;
+    }
+
+    /**
+     * Returns token the server hands out for the document.
+     */
+    @NonNull
+    static String getToken(@NonNull String documentId) {
+        return "token-" + documentId;
+    }
+
+    /**
+     * Returns time at which the token request of the document arrived, or {@code null} if it was never requested.
+     */
+    @Nullable
+    Long getTokenRequestTime(@NonNull String documentId) {
+        return tokenRequestTimes.get(documentId);
+    }
+
+    /**
+     * Returns number of "GET /api/documents" requests, counting each page.
+     */
+    int getDocumentListRequestCount() {
+        return documentListRequestCount.get();
+    }
+
+    /**
+     * Returns number of "GET /api/document/:id" requests.
+     */
+    int getTokenRequestCount() {
+        return tokenRequestCount.get();
+    }
+
+    /**
+     * Returns number of "POST /api/documents/tokens" requests, including those rejected while batching is not supported.
+     */
+    int getBatchedTokenRequestCount() {
+        return batchedTokenRequestCount.get();
+    }
+
+    @NonNull
+    @Override
+    public MockResponse dispatch(@NonNull RecordedRequest request) {
+        final String path = request.getRequestUrl() != null ? request.getRequestUrl().encodedPath() : "";
+        if (DOCUMENTS_PATH.equals(path) && "GET".equals(request.getMethod())) {
+            documentListRequestCount.incrementAndGet();
+            if (!pagingSupported) {
+                return new MockResponse().setBody(createDocumentList(documentCount));
+            }
+            final String cursor = request.getRequestUrl().queryParameter("cursor");
+            final String limit = request.getRequestUrl().queryParameter("limit");
+            try {
+                final int start = cursor != null ? Integer.parseInt(cursor) : 0;
+                final int end = limit != null ? Math.min(documentCount, start + Integer.parseInt(limit)) : documentCount;
+                if (start < 0 || start > documentCount || end < start) {
+                    return new MockResponse().setResponseCode(400);
+                }
+                return new MockResponse().setBody(createDocumentList(start, end, end < documentCount ? String.valueOf(end) : null));
+            } catch (NumberFormatException ex) {
+                return new MockResponse().setResponseCode(400);
+            }
+        } else if (path.startsWith(DOCUMENT_PATH_PREFIX) && "GET".equals(request.getMethod())) {
+            final String documentId = path.substring(DOCUMENT_PATH_PREFIX.length());
+            tokenRequestTimes.put(documentId, System.nanoTime());
+            tokenRequestCount.incrementAndGet();
+            return new MockResponse().setBody("{\"success\":true,\"token\":\"" + getToken(documentId) + "\"}");
+        } else if (TOKENS_PATH.equals(path) && "POST".equals(request.getMethod())) {
+            batchedTokenRequestCount.incrementAndGet();
+            if (!batchedTokensSupported) {
+                return new MockResponse().setResponseCode(404);
+            }
+            return new MockResponse().setBody(createTokens(request.getBody().readUtf8()));
+        }
+        return new MockResponse().setResponseCode(404);
+    }
+
+    /**
+     * Creates batched token response for the document ids of the request body.
+     */
+    @NonNull
+    private String createTokens(@NonNull String requestBody) {
+        final JsonArray documentIds = new JsonParser().parse(requestBody).getAsJsonObject().getAsJsonArray("ids");
+        final JsonObject tokens = new JsonObject();
+        for (JsonElement documentId : documentIds) {
+            final String id = documentId.getAsString();
+            if (!documentsMissingFromBatches.contains(id)) {
+                tokens.addProperty(id, getToken(id));
+            }
+        }
+        final JsonObject response = new JsonObject();
+        response.add("tokens", tokens);
+        return response.toString();
+    }
+
+    /**
+     * Creates "GET /api/documents" response listing the given number of documents.
+     */
+    @NonNull
+    static String createDocumentList(int documentCount) {
+        return createDocumentList(0, documentCount, null);
+    }
+
+    /**
+     * Creates "GET /api/documents" response listing documents from {@code start} (inclusive) to {@code end} (exclusive)
+     * of the catalog.
+     * @param nextCursor Cursor of the following page, or {@code null} if this is the last page.
+     */
+    @NonNull
+    private static String createDocumentList(int start, int end, @Nullable String nextCursor) {
+        final StringBuilder body = new StringBuilder("{\"documents\":[");
+        for (int i = start; i < end; i++) {
+            if (i > start) {
+                body.append(',');
+            }
+            body.append("{\"id\":\"").append(getDocumentId(i))
+                .append("\",\"title\":\"Document ").append(i)
+                .append("\",\"layers\":[],\"tokens\":[]}");
+        }
+        body.append(']');
+        if (nextCursor != null) {
+            body.append(",\"next_cursor\":\"").append(nextCursor).append('"');
+        }
+        return body.append('}').toString();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import com.google.gson.Gson;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares Gson's reflective adapters with {@link WebExampleTypeAdapters}, both for the first response decoded by a
+ * fresh {@link Gson} instance and for decoding once warmed up. Run with {@code ./gradlew testDebugUnitTest -Pbenchmarks}.
+ */
+public class WebExampleTypeAdaptersBenchmark {
+
+    private static final int DOCUMENT_COUNT = 1_000;
+    private static final int TOKEN_COUNT = 100;
+    private static final int FIRST_USE_RUNS = 20;
+    private static final int WARM_UP_RUNS = 200;
+    private static final int MEASURED_RUNS = 1_000;
+
+    private String documentListJson;
+    private String tokensJson;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Benchmarks only run with -Pbenchmarks.", Boolean.getBoolean("benchmarks"));
+        documentListJson = WebExampleTestServer.createDocumentList(DOCUMENT_COUNT);
+
+        final Map<String, String> tokens = new HashMap<>();
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            final String documentId = WebExampleTestServer.getDocumentId(i);
+            tokens.put(documentId, WebExampleTestServer.getToken(documentId));
+        }
+        tokensJson = WebExampleTypeAdapters.createGson().toJson(new WebExampleDocumentTokens(tokens));
+    }
+
+    @Test
+    public void firstUse() {
+        // Reflective adapters are created lazily by each Gson instance, so every run pays for creating them again.
+        long reflectiveTime = 0;
+        long adaptersTime = 0;
+        for (int i = 0; i < FIRST_USE_RUNS; i++) {
+            long start = System.nanoTime();
+            decode(new Gson());
+            reflectiveTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            decode(WebExampleTypeAdapters.createGson());
+            adaptersTime += System.nanoTime() - start;
+        }
+        report("First use", reflectiveTime / FIRST_USE_RUNS, adaptersTime / FIRST_USE_RUNS);
+    }
+
+    @Test
+    public void warmDecode() {
+        final Gson reflectiveGson = new Gson();
+        final Gson adaptersGson = WebExampleTypeAdapters.createGson();
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            decode(reflectiveGson);
+            decode(adaptersGson);
+        }
+        report("Warm decode", measure(reflectiveGson), measure(adaptersGson));
+    }
+
+    private long measure(Gson gson) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            decode(gson);
+        }
+        return (System.nanoTime() - start) / MEASURED_RUNS;
+    }
+
+    /**
+     * Decodes a document list and a batched token response, the two responses a document list refresh consists of.
+     */
+    private void decode(Gson gson) {
+        final WebExampleDocumentList documentList = gson.fromJson(documentListJson, WebExampleDocumentList.class);
+        final WebExampleDocumentTokens tokens = gson.fromJson(tokensJson, WebExampleDocumentTokens.class);
+        assertEquals(DOCUMENT_COUNT, documentList.documents.size());
+        assertEquals(TOKEN_COUNT, tokens.tokens.size());
+    }
+
+    private static void report(String mode, long reflectiveTime, long adaptersTime) {
+        System.out.println(String.format("%s of %d documents and %d tokens: reflective %.3f ms, type adapters %.3f ms",
+            mode, DOCUMENT_COUNT, TOKEN_COUNT, reflectiveTime / 1e6, adaptersTime / 1e6));
+    }
+}
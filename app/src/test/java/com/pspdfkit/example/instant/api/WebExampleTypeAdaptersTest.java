@@ -0,0 +1,75 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WebExampleTypeAdaptersTest {
+
+    private final Gson gson = WebExampleTypeAdapters.createGson();
+
+    @Test
+    public void completeDocumentIsRead() {
+        final WebExampleDocument document = gson.fromJson(
+            "{\"id\":\"document\",\"title\":\"Title\",\"layers\":[\"layer\"],\"tokens\":[\"token\"],\"unknown\":1}",
+            WebExampleDocument.class);
+
+        assertEquals("document", document.id);
+        assertEquals("Title", document.title);
+        assertEquals(Arrays.asList("layer"), document.layers);
+        assertEquals(Arrays.asList("token"), document.tokens);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void documentWithoutIdFails() {
+        gson.fromJson("{\"title\":\"Title\",\"layers\":[],\"tokens\":[]}", WebExampleDocument.class);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void documentWithNullTitleFails() {
+        gson.fromJson("{\"id\":\"document\",\"title\":null,\"layers\":[],\"tokens\":[]}", WebExampleDocument.class);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void documentWithoutLayersFails() {
+        gson.fromJson("{\"id\":\"document\",\"title\":\"Title\",\"tokens\":[]}", WebExampleDocument.class);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void documentListWithoutDocumentsFails() {
+        gson.fromJson("{\"next_cursor\":\"cursor\"}", WebExampleDocumentList.class);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void tokensWithoutTokensFieldFails() {
+        gson.fromJson("{}", WebExampleDocumentTokens.class);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void successfulAuthenticationWithoutTokenFails() {
+        gson.fromJson("{\"success\":true}", WebExampleDocumentAuthenticationResult.class);
+    }
+
+    @Test
+    public void failedAuthenticationWithoutTokenIsRead() {
+        final WebExampleDocumentAuthenticationResult result =
+            gson.fromJson("{\"success\":false}", WebExampleDocumentAuthenticationResult.class);
+
+        assertFalse(result.success);
+        assertTrue(result.token.isEmpty());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.db;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
+import com.pspdfkit.example.instant.api.WebExampleDocumentLayerDescriptor;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures how long {@link WebExampleDocumentsDatabase#getDocuments()} takes to load 1k, 10k and 50k documents, compared
+ * with querying layers of every document on their own. Run with {@code ./gradlew testDebugUnitTest -Pbenchmarks}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class WebExampleDocumentsDatabaseLoadBenchmark {
+
+    private static final int[] DOCUMENT_COUNTS = {1_000, 10_000, 50_000};
+    private static final int NAMED_LAYER_COUNT = 1;
+    private static final int WRITE_BATCH_SIZE = 1_000;
+    private static final int RUNS = 3;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Benchmarks only run with -Pbenchmarks.", Boolean.getBoolean("benchmarks"));
+    }
+
+    @Test
+    public void loadDocuments() {
+        for (int documentCount : DOCUMENT_COUNTS) {
+            final WebExampleDocumentsDatabase database = WebExampleTestDocuments.createDatabase(context);
+            try {
+                for (int start = 0; start < documentCount; start += WRITE_BATCH_SIZE) {
+                    database.addDocuments(WebExampleTestDocuments.createDocuments(start,
+                        Math.min(WRITE_BATCH_SIZE, documentCount - start), NAMED_LAYER_COUNT)).blockingGet();
+                }
+                final DatabaseHelper databaseHelper = database.getDatabaseHelper();
+
+                long bulkTime = Long.MAX_VALUE;
+                long perDocumentTime = Long.MAX_VALUE;
+                for (int run = 0; run < RUNS; run++) {
+                    // Small document lists would be returned from cache otherwise.
+                    databaseHelper.getDescriptorCache().clear();
+                    long start = System.nanoTime();
+                    assertEquals(documentCount, database.getDocuments().size());
+                    bulkTime = Math.min(bulkTime, System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    assertEquals(documentCount, getDocumentsWithLayerQueryPerDocument(databaseHelper).size());
+                    perDocumentTime = Math.min(perDocumentTime, System.nanoTime() - start);
+                }
+                System.out.println(String.format("Loading %d documents: bulk queries %d ms, layer query per document %d ms",
+                    documentCount, TimeUnit.NANOSECONDS.toMillis(bulkTime), TimeUnit.NANOSECONDS.toMillis(perDocumentTime)));
+            } finally {
+                database.deleteDatabase().blockingAwait();
+            }
+        }
+    }
+
+    /**
+     * Loads documents the way the database did before layers were read in bulk, for comparison.
+     */
+    private static List<WebExampleDocumentDescriptor> getDocumentsWithLayerQueryPerDocument(DatabaseHelper databaseHelper) {
+        final List<WebExampleDocumentDescriptor> documents = new ArrayList<>();
+        final SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        try (Cursor cursor = db.query(DatabaseHelper.TABLE_DOCUMENTS,
+            new String[] {DatabaseHelper.KEY_DOCUMENT_ID, DatabaseHelper.KEY_DOCUMENT_TITLE}, null, null, null, null, "rowid")) {
+            while (cursor.moveToNext()) {
+                final String documentId = cursor.getString(cursor.getColumnIndex(DatabaseHelper.KEY_DOCUMENT_ID));
+                final List<WebExampleDocumentLayerDescriptor> layers = new ArrayList<>();
+                try (Cursor layerCursor = db.query(DatabaseHelper.TABLE_LAYERS,
+                    new String[] {DatabaseHelper.KEY_LAYER_NAME, DatabaseHelper.KEY_JWT},
+                    DatabaseHelper.KEY_DOCUMENT_ID + " = ?", new String[] {documentId}, null, null, null)) {
+                    while (layerCursor.moveToNext()) {
+                        layers.add(new WebExampleDocumentLayerDescriptor(documentId,
+                            layerCursor.getString(layerCursor.getColumnIndex(DatabaseHelper.KEY_LAYER_NAME)),
+                            layerCursor.getString(layerCursor.getColumnIndex(DatabaseHelper.KEY_JWT))));
+                    }
+                }
+                documents.add(new WebExampleDocumentDescriptor(documentId,
+                    cursor.getString(cursor.getColumnIndex(DatabaseHelper.KEY_DOCUMENT_TITLE)), layers));
+            }
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.db;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pages through 200k stored documents like the document grid does, keeping only a window of pages in memory. Checks
+ * that the first page arrives quickly and that heap use does not grow with the number of documents paged through.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class WebExampleDocumentsDatabasePagingTest {
+
+    private static final int DOCUMENT_COUNT = 200_000;
+    private static final int WRITE_BATCH_SIZE = 10_000;
+    private static final int PAGE_SIZE = 60;
+    /** Pages kept in memory while paging, like the document grid does. */
+    private static final int WINDOW_PAGES = 6;
+
+    private static final long MAX_FIRST_PAGE_TIME_MS = 1_000;
+    /** Far below the size of all 200k descriptors, which take several tens of megabytes. */
+    private static final long MAX_HEAP_GROWTH_BYTES = 8L * 1024 * 1024;
+
+    private WebExampleDocumentsDatabase database;
+
+    @Before
+    public void setUp() {
+        database = WebExampleTestDocuments.createDatabase(ApplicationProvider.getApplicationContext());
+        for (int start = 0; start < DOCUMENT_COUNT; start += WRITE_BATCH_SIZE) {
+            database.addDocuments(WebExampleTestDocuments.createDocuments(start, WRITE_BATCH_SIZE, 0)).blockingGet();
+        }
+        // Descriptors written to the database are cached, which would count against the heap of the paging.
+        database.getDatabaseHelper().getDescriptorCache().clear();
+    }
+
+    @After
+    public void tearDown() {
+        database.deleteDatabase().blockingAwait();
+    }
+
+    @Test
+    public void firstPageIsFastAndHeapIsBoundedByWindow() {
+        final long start = System.nanoTime();
+        final DocumentPage firstPage = database.getDocumentsAfter(DocumentPage.START_POSITION, PAGE_SIZE);
+        final long firstPageTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(PAGE_SIZE, firstPage.documents.size());
+        assertTrue("First page took " + firstPageTimeMs + " ms.", firstPageTimeMs <= MAX_FIRST_PAGE_TIME_MS);
+
+        final long heapBefore = getUsedHeap();
+        final Deque<DocumentPage> window = new ArrayDeque<>();
+        long maxHeapGrowth = 0;
+        int pagedDocumentCount = 0;
+        DocumentPage page = firstPage;
+        while (!page.documents.isEmpty()) {
+            pagedDocumentCount += page.documents.size();
+            window.addLast(page);
+            if (window.size() > WINDOW_PAGES) {
+                window.removeFirst();
+            }
+            // Heap is sampled now and then, since collecting garbage for every page would take too long.
+            if (pagedDocumentCount % (PAGE_SIZE * 500) == 0) {
+                maxHeapGrowth = Math.max(maxHeapGrowth, getUsedHeap() - heapBefore);
+            }
+            page = database.getDocumentsAfter(page.endPosition, PAGE_SIZE);
+        }
+        maxHeapGrowth = Math.max(maxHeapGrowth, getUsedHeap() - heapBefore);
+
+        assertEquals(DOCUMENT_COUNT, pagedDocumentCount);
+        assertTrue("Heap grew by " + maxHeapGrowth / 1024 + " KB.", maxHeapGrowth <= MAX_HEAP_GROWTH_BYTES);
+        System.out.println(String.format("Paging %d documents: first page %d ms, heap growth at most %d KB",
+            DOCUMENT_COUNT, firstPageTimeMs, Math.max(0, maxHeapGrowth) / 1024));
+    }
+
+    private static long getUsedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
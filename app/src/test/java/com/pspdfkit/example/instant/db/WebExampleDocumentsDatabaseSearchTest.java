@@ -0,0 +1,112 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.db;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Searches 100k stored document titles and checks that queries typed into the search field are answered within 10 ms.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class WebExampleDocumentsDatabaseSearchTest {
+
+    private static final int DOCUMENT_COUNT = 100_000;
+    private static final int WRITE_BATCH_SIZE = 10_000;
+    private static final int RESULT_LIMIT = 200;
+    private static final String[] TITLE_WORDS = {
+        "Annual", "Report", "Contract", "Invoice", "Manual", "Proposal", "Budget", "Review", "Summary", "Agreement",
+        "Quarterly", "Draft", "Final", "Minutes", "Handbook", "Specification", "Roadmap", "Forecast", "Audit", "Policy"
+    };
+    private static final List<String> QUERIES = Arrays.asList("Rep", "annual rep", "Invoice 42", "Specif", "Draft Audit", "z");
+    private static final int WARM_UP_RUNS = 3;
+    private static final int MEASURED_RUNS = 20;
+    private static final long MAX_MEDIAN_LATENCY_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private WebExampleDocumentsDatabase database;
+
+    @Before
+    public void setUp() {
+        database = WebExampleTestDocuments.createDatabase(ApplicationProvider.getApplicationContext());
+        for (int start = 0; start < DOCUMENT_COUNT; start += WRITE_BATCH_SIZE) {
+            final List<WebExampleDocumentDescriptor> documents = new ArrayList<>(WRITE_BATCH_SIZE);
+            for (int i = start; i < start + WRITE_BATCH_SIZE; i++) {
+                documents.add(WebExampleTestDocuments.createDocument(i, createTitle(i), 0, "token"));
+            }
+            database.addDocuments(documents).blockingGet();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.deleteDatabase().blockingAwait();
+    }
+
+    @Test
+    public void searchResultsMatchAllWords() {
+        final List<WebExampleDocumentDescriptor> results = database.searchDocuments("annual rep", RESULT_LIMIT);
+
+        assertFalse(results.isEmpty());
+        assertTrue(results.size() <= RESULT_LIMIT);
+        for (WebExampleDocumentDescriptor document : results) {
+            final String title = document.title.toLowerCase();
+            assertTrue(title, title.contains("annual") && title.contains("rep"));
+        }
+        assertTrue(database.searchDocuments("nonexistent", RESULT_LIMIT).isEmpty());
+    }
+
+    @Test
+    public void searchIsAnsweredWithinTenMilliseconds() {
+        for (String query : QUERIES) {
+            for (int i = 0; i < WARM_UP_RUNS; i++) {
+                database.searchDocuments(query, RESULT_LIMIT);
+            }
+            final long[] latencies = new long[MEASURED_RUNS];
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                final long start = System.nanoTime();
+                database.searchDocuments(query, RESULT_LIMIT);
+                latencies[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(latencies);
+            final long medianLatency = latencies[MEASURED_RUNS / 2];
+            System.out.println(String.format("Searching %d titles for \"%s\": median %.2f ms",
+                DOCUMENT_COUNT, query, medianLatency / 1e6));
+            assertTrue("Search for \"" + query + "\" took " + medianLatency / 1e6 + " ms.", medianLatency <= MAX_MEDIAN_LATENCY_NS);
+        }
+        assertEquals(DOCUMENT_COUNT, database.getDocumentCount());
+    }
+
+    /**
+     * Creates title of three words and the position, so that every word occurs in many titles.
+     */
+    private static String createTitle(int position) {
+        return TITLE_WORDS[position % TITLE_WORDS.length] + " " +
+            TITLE_WORDS[(position / TITLE_WORDS.length) % TITLE_WORDS.length] + " " +
+            TITLE_WORDS[(position / 7) % TITLE_WORDS.length] + " " + position;
+    }
+}
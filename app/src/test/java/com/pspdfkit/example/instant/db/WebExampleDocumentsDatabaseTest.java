@@ -0,0 +1,188 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.db;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.pspdfkit.example.instant.api.WebExampleDocumentChanges;
+import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class WebExampleDocumentsDatabaseTest {
+
+    private static final int DOCUMENT_COUNT = 10;
+    private static final int NAMED_LAYER_COUNT = 2;
+    private static final int DELETION_COUNT = 20;
+    private static final int PAGE_SIZE = 3;
+
+    private WebExampleDocumentsDatabase database;
+
+    @Before
+    public void setUp() {
+        database = WebExampleTestDocuments.createDatabase(ApplicationProvider.getApplicationContext());
+    }
+
+    @After
+    public void tearDown() {
+        database.deleteDatabase().blockingAwait();
+    }
+
+    @Test
+    public void replacingWithSameDocumentsChangesNothing() {
+        final List<WebExampleDocumentDescriptor> documents = WebExampleTestDocuments.createDocuments(0, DOCUMENT_COUNT, NAMED_LAYER_COUNT);
+        database.replaceDocuments(documents).blockingGet();
+
+        final WebExampleDocumentChanges changes = database.replaceDocuments(documents).blockingGet();
+
+        assertTrue(changes.isEmpty());
+        WebExampleTestDocuments.assertSameDocuments(documents, database.getDocuments());
+    }
+
+    @Test
+    public void replacingReportsAddedChangedAndRemovedDocuments() {
+        database.replaceDocuments(WebExampleTestDocuments.createDocuments(0, DOCUMENT_COUNT, NAMED_LAYER_COUNT)).blockingGet();
+
+        final List<WebExampleDocumentDescriptor> documents = new ArrayList<>(WebExampleTestDocuments.createDocuments(1, DOCUMENT_COUNT, NAMED_LAYER_COUNT));
+        // Changed token of a layer, changed title and removed layer.
+        documents.set(0, WebExampleTestDocuments.createDocument(1, "Document 1", NAMED_LAYER_COUNT, "refreshed"));
+        documents.set(1, WebExampleTestDocuments.createDocument(2, "Renamed", NAMED_LAYER_COUNT, "token"));
+        documents.set(2, WebExampleTestDocuments.createDocument(3, "Document 3", 0, "token"));
+        final WebExampleDocumentChanges changes = database.replaceDocuments(documents).blockingGet();
+
+        assertEquals(1, changes.addedDocuments.size());
+        assertEquals(WebExampleTestDocuments.getDocumentId(DOCUMENT_COUNT), changes.addedDocuments.get(0).documentId);
+        WebExampleTestDocuments.assertSameDocuments(documents.subList(0, 3), changes.changedDocuments);
+        assertEquals(1, changes.removedDocumentIds.size());
+        assertEquals(WebExampleTestDocuments.getDocumentId(0), changes.removedDocumentIds.get(0));
+
+        // Read from the database rather than from cache.
+        database.getDatabaseHelper().getDescriptorCache().clear();
+        assertEquals(DOCUMENT_COUNT, database.getDocuments().size());
+        for (WebExampleDocumentDescriptor document : documents) {
+            WebExampleTestDocuments.assertSameDocument(document, database.getDocument(document.documentId));
+        }
+    }
+
+    @Test
+    public void addingReportsChangedDocuments() {
+        assertTrue(database.addDocuments(WebExampleTestDocuments.createDocuments(0, DOCUMENT_COUNT, NAMED_LAYER_COUNT)).blockingGet().isEmpty());
+
+        // Changed token of a layer, changed title, added layer, unchanged and added document.
+        final List<String> changedDocumentIds = database.addDocuments(Arrays.asList(
+            WebExampleTestDocuments.createDocument(1, "Document 1", NAMED_LAYER_COUNT, "refreshed"),
+            WebExampleTestDocuments.createDocument(2, "Renamed", NAMED_LAYER_COUNT, "token"),
+            WebExampleTestDocuments.createDocument(3, "Document 3", NAMED_LAYER_COUNT + 1, "token"),
+            WebExampleTestDocuments.createDocument(4, "Document 4", NAMED_LAYER_COUNT, "token"),
+            WebExampleTestDocuments.createDocument(DOCUMENT_COUNT, "Added", NAMED_LAYER_COUNT, "token"))).blockingGet();
+
+        assertEquals(Arrays.asList(WebExampleTestDocuments.getDocumentId(1), WebExampleTestDocuments.getDocumentId(2),
+            WebExampleTestDocuments.getDocumentId(3)), changedDocumentIds);
+    }
+
+    @Test
+    public void cachedDocumentsFollowWrites() {
+        database.replaceDocuments(WebExampleTestDocuments.createDocuments(0, DOCUMENT_COUNT, NAMED_LAYER_COUNT)).blockingGet();
+        database.getDocuments();
+
+        // Retitled document without named layers keeps its stored named layers.
+        database.addDocuments(Arrays.asList(
+            WebExampleTestDocuments.createDocument(1, "Renamed", 0, "refreshed"),
+            WebExampleTestDocuments.createDocument(DOCUMENT_COUNT, "Added", NAMED_LAYER_COUNT, "token"))).blockingGet();
+        database.applyDocumentChanges(new WebExampleDocumentChanges(
+            Collections.<WebExampleDocumentDescriptor>emptyList(),
+            Collections.singletonList(WebExampleTestDocuments.createDocument(3, "Changed", 1, "changed")),
+            Collections.singletonList(WebExampleTestDocuments.getDocumentId(2)), null)).blockingAwait();
+        assertCachedDocumentsAreStored();
+
+        database.replaceDocuments(WebExampleTestDocuments.createDocuments(1, DOCUMENT_COUNT + 1, NAMED_LAYER_COUNT)).blockingGet();
+        assertCachedDocumentsAreStored();
+    }
+
+    /**
+     * Asserts that all documents are cached and match the documents read from the database. Documents are read from the
+     * database again afterwards.
+     */
+    private void assertCachedDocumentsAreStored() {
+        final List<WebExampleDocumentDescriptor> cachedDocuments = database.getDatabaseHelper().getDescriptorCache().getAllDocuments();
+        assertNotNull(cachedDocuments);
+        database.getDatabaseHelper().getDescriptorCache().clear();
+        WebExampleTestDocuments.assertSameDocuments(database.getDocuments(), cachedDocuments);
+    }
+
+    @Test
+    public void readsRacingDeletionDontThrow() throws Exception {
+        final AtomicReference<Throwable> readError = new AtomicReference<>();
+        final AtomicBoolean deleting = new AtomicBoolean(true);
+        final Thread reader = new Thread(() -> {
+            try {
+                while (deleting.get()) {
+                    database.getDocumentsAfter(DocumentPage.START_POSITION, DOCUMENT_COUNT);
+                    database.searchDocuments("Document", DOCUMENT_COUNT);
+                    database.getDocumentCount();
+                }
+            } catch (Throwable throwable) {
+                readError.set(throwable);
+            }
+        });
+        reader.start();
+        try {
+            for (int i = 0; i < DELETION_COUNT; i++) {
+                database.addDocuments(WebExampleTestDocuments.createDocuments(0, DOCUMENT_COUNT, NAMED_LAYER_COUNT)).blockingGet();
+                database.deleteDatabase().blockingAwait();
+            }
+        } finally {
+            deleting.set(false);
+            reader.join();
+        }
+
+        assertNull(readError.get());
+        assertEquals(0, database.getDocumentCount());
+    }
+
+    @Test
+    public void pagesFollowStoredOrder() {
+        // Stored in reverse order of their ids, so that pages can't be ordered by document id.
+        final List<WebExampleDocumentDescriptor> documents = WebExampleTestDocuments.createDocuments(0, DOCUMENT_COUNT, NAMED_LAYER_COUNT);
+        Collections.reverse(documents);
+        database.addDocuments(documents).blockingGet();
+
+        final List<WebExampleDocumentDescriptor> pagedDocuments = new ArrayList<>();
+        long position = DocumentPage.START_POSITION;
+        DocumentPage page;
+        while (!(page = database.getDocumentsAfter(position, PAGE_SIZE)).documents.isEmpty()) {
+            assertTrue(page.documents.size() <= PAGE_SIZE);
+            pagedDocuments.addAll(page.documents);
+            position = page.endPosition;
+        }
+        WebExampleTestDocuments.assertSameDocuments(documents, pagedDocuments);
+        WebExampleTestDocuments.assertSameDocuments(documents.subList(PAGE_SIZE, 2 * PAGE_SIZE),
+            database.getDocumentsAt(PAGE_SIZE, PAGE_SIZE).documents);
+    }
+}
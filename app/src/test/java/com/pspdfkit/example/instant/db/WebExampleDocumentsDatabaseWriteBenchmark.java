@@ -0,0 +1,109 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.db;
+
+import android.app.Application;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
+import com.pspdfkit.example.instant.api.WebExampleDocumentLayerDescriptor;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures how many layer rows per second {@link WebExampleDocumentsDatabase#addDocuments(List)} writes for 100k layer
+ * rows, compared with inserting every row through its own {@link ContentValues}. Run with
+ * {@code ./gradlew testDebugUnitTest -Pbenchmarks}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class WebExampleDocumentsDatabaseWriteBenchmark {
+
+    private static final int DOCUMENT_COUNT = 25_000;
+    /** Every document has a default layer as well, so documents have 4 layers and 100k layer rows are written. */
+    private static final int NAMED_LAYER_COUNT = 3;
+    private static final int LAYER_ROW_COUNT = DOCUMENT_COUNT * (NAMED_LAYER_COUNT + 1);
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private List<WebExampleDocumentDescriptor> documents;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Benchmarks only run with -Pbenchmarks.", Boolean.getBoolean("benchmarks"));
+        documents = WebExampleTestDocuments.createDocuments(0, DOCUMENT_COUNT, NAMED_LAYER_COUNT);
+    }
+
+    @Test
+    public void compiledStatements() {
+        final WebExampleDocumentsDatabase database = WebExampleTestDocuments.createDatabase(context);
+        try {
+            // Opens the database, so that opening it is not measured.
+            database.flush().blockingAwait();
+
+            final long start = System.nanoTime();
+            database.addDocuments(documents).blockingGet();
+            report("Compiled statements", System.nanoTime() - start, database.getDatabaseHelper());
+        } finally {
+            database.deleteDatabase().blockingAwait();
+        }
+    }
+
+    @Test
+    public void contentValuesPerRow() {
+        final WebExampleDocumentsDatabase database = WebExampleTestDocuments.createDatabase(context);
+        try {
+            final SQLiteDatabase db = database.getDatabaseHelper().getWritableDatabase();
+
+            final long start = System.nanoTime();
+            db.beginTransactionNonExclusive();
+            try {
+                for (WebExampleDocumentDescriptor document : documents) {
+                    final ContentValues contentValues = new ContentValues();
+                    contentValues.put(DatabaseHelper.KEY_DOCUMENT_ID, document.documentId);
+                    contentValues.put(DatabaseHelper.KEY_DOCUMENT_TITLE, document.title);
+                    db.insertWithOnConflict(DatabaseHelper.TABLE_DOCUMENTS, null, contentValues, SQLiteDatabase.CONFLICT_IGNORE);
+
+                    for (WebExampleDocumentLayerDescriptor layer : document.layers) {
+                        final ContentValues layerContentValues = new ContentValues();
+                        layerContentValues.put(DatabaseHelper.KEY_DOCUMENT_ID, document.documentId);
+                        layerContentValues.put(DatabaseHelper.KEY_LAYER_NAME, layer.layerName);
+                        layerContentValues.put(DatabaseHelper.KEY_JWT, layer.jwt);
+                        db.insertWithOnConflict(DatabaseHelper.TABLE_LAYERS, null, layerContentValues, SQLiteDatabase.CONFLICT_REPLACE);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            report("ContentValues per row", System.nanoTime() - start, database.getDatabaseHelper());
+        } finally {
+            database.deleteDatabase().blockingAwait();
+        }
+    }
+
+    private static void report(String mode, long time, DatabaseHelper databaseHelper) {
+        assertEquals(LAYER_ROW_COUNT, DatabaseUtils.queryNumEntries(databaseHelper.getReadableDatabase(), DatabaseHelper.TABLE_LAYERS));
+        System.out.println(String.format("%s: %d layer rows in %d ms, %.0f rows/s",
+            mode, LAYER_ROW_COUNT, TimeUnit.NANOSECONDS.toMillis(time), LAYER_ROW_COUNT / (time / 1e9)));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *   Copyright © 2021 PSPDFKit GmbH. All rights reserved.
+ *
+ *   The PSPDFKit Sample applications are licensed with a modified BSD license.
+ *   Please see License for details. This notice may not be removed from this file.
+ */
+
+package com.pspdfkit.example.instant.db;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.pspdfkit.example.instant.api.WebExampleDocumentDescriptor;
+import com.pspdfkit.example.instant.api.WebExampleDocumentLayerDescriptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Generated documents and databases for documents database tests.
+ */
+final class WebExampleTestDocuments {
+
+    /** Makes database names unique, since database helpers are shared per name for the lifetime of the process. */
+    private static final AtomicInteger databaseCount = new AtomicInteger();
+
+    private WebExampleTestDocuments() {
+    }
+
+    /**
+     * Opens a new, empty database. Delete it with {@link WebExampleDocumentsDatabase#deleteDatabase()} once done.
+     */
+    @NonNull
+    static WebExampleDocumentsDatabase createDatabase(@NonNull Context context) {
+        return new WebExampleDocumentsDatabase(context, "test_db_" + databaseCount.incrementAndGet());
+    }
+
+    /**
+     * Returns id of the document at given position. Ids sort like their positions.
+     */
+    @NonNull
+    static String getDocumentId(int position) {
+        return String.format("document-%08d", position);
+    }
+
+    /**
+     * Creates documents with the default layer and the given number of named layers.
+     * @param start Position of the first document.
+     * @param count Number of documents.
+     */
+    @NonNull
+    static List<WebExampleDocumentDescriptor> createDocuments(int start, int count, int namedLayerCount) {
+        final List<WebExampleDocumentDescriptor> documents = new ArrayList<>(count);
+        for (int i = start; i < start + count; i++) {
+            documents.add(createDocument(i, "Document " + i, namedLayerCount, "token"));
+        }
+        return documents;
+    }
+
+    /**
+     * Creates document at given position. Layer tokens start with the given prefix, so that changed tokens can be created.
+     */
+    @NonNull
+    static WebExampleDocumentDescriptor createDocument(int position, @NonNull String title, int namedLayerCount, @NonNull String tokenPrefix) {
+        final String documentId = getDocumentId(position);
+        final List<WebExampleDocumentLayerDescriptor> layers = new ArrayList<>(namedLayerCount + 1);
+        layers.add(new WebExampleDocumentLayerDescriptor(documentId, "", tokenPrefix + "-" + documentId));
+        for (int layer = 0; layer < namedLayerCount; layer++) {
+            layers.add(new WebExampleDocumentLayerDescriptor(documentId, "layer-" + layer, tokenPrefix + "-" + documentId + "-" + layer));
+        }
+        return new WebExampleDocumentDescriptor(documentId, title, layers);
+    }
+
+    /**
+     * Asserts that documents match in id, title and layers. Descriptors only compare their ids in {@code equals()}.
+     */
+    static void assertSameDocuments(@NonNull List<WebExampleDocumentDescriptor> expected,
+                                    @NonNull List<WebExampleDocumentDescriptor> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameDocument(expected.get(i), actual.get(i));
+        }
+    }
+
+    static void assertSameDocument(@NonNull WebExampleDocumentDescriptor expected, @Nullable WebExampleDocumentDescriptor actual) {
+        assertNotNull(actual);
+        assertEquals(expected.documentId, actual.documentId);
+        assertEquals(expected.title, actual.title);
+        assertEquals(expected.layers.size(), actual.layers.size());
+        for (int i = 0; i < expected.layers.size(); i++) {
+            assertEquals(expected.layers.get(i).layerName, actual.layers.get(i).layerName);
+            assertEquals(expected.layers.get(i).jwt, actual.layers.get(i).jwt);
+        }
+    }
+}